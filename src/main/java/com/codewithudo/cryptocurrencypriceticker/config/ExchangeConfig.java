@@ -0,0 +1,37 @@
+package com.codewithudo.cryptocurrencypriceticker.config;
+
+import com.codewithudo.cryptocurrencypriceticker.service.ExchangeAdapter;
+import com.codewithudo.cryptocurrencypriceticker.service.ExchangeRegistry;
+import com.codewithudo.cryptocurrencypriceticker.service.QuidaxService;
+import com.codewithudo.cryptocurrencypriceticker.service.QuidaxTickerParser;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class ExchangeConfig {
+
+    /**
+     * Quidax plus every other {@link ExchangeAdapter} bean, plus a Quidax-API adapter for each
+     * {@code quidax.venues.*} entry. Each venue gets its own rate limiter, circuit breaker and
+     * retry history since it has its own quota and failure modes; they share the HTTP client.
+     */
+    @Bean
+    public ExchangeRegistry exchangeRegistry(List<ExchangeAdapter> adapterBeans, QuidaxProperties properties,
+                                             ObjectProvider<RestTemplateBuilder> builderProvider,
+                                             HttpClient quidaxHttpClient, QuidaxTickerParser tickerParser) {
+        List<ExchangeAdapter> adapters = new ArrayList<>(adapterBeans);
+        properties.getVenues().forEach((name, venue) -> adapters.add(new QuidaxService(name, venue.getBaseUrl(),
+                QuidaxClientConfig.restTemplate(builderProvider, quidaxHttpClient,
+                        QuidaxClientConfig.rateLimiter(name, properties.getRateLimit()), properties.getHttp()),
+                properties.getHttp(), tickerParser,
+                QuidaxClientConfig.circuitBreaker(name, properties.getCircuitBreaker()),
+                QuidaxClientConfig.retry(properties.getRetry()))));
+        return new ExchangeRegistry(QuidaxService.NAME, adapters, properties.getCache()::hardTtlFor);
+    }
+}
@@ -0,0 +1,99 @@
+package com.codewithudo.cryptocurrencypriceticker.config;
+
+import com.codewithudo.cryptocurrencypriceticker.service.AdaptiveRateLimiter;
+import com.codewithudo.cryptocurrencypriceticker.service.CircuitBreaker;
+import com.codewithudo.cryptocurrencypriceticker.service.QuidaxService;
+import com.codewithudo.cryptocurrencypriceticker.service.UpstreamRetry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class QuidaxClientConfig {
+
+    @Bean
+    public HttpClient quidaxHttpClient(QuidaxProperties properties, Environment environment) {
+        QuidaxProperties.Http http = properties.getHttp();
+
+        // One long-lived client so connections (and their TLS sessions) are pooled and kept alive
+        // between polls. With HTTP/2 all concurrent requests are multiplexed over a single connection.
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(http.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(http.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL);
+
+        // With spring.threads.virtual.enabled the client's own I/O work runs on virtual threads too,
+        // instead of its default cached pool of platform threads
+        if (Threading.VIRTUAL.isActive(environment)) {
+            builder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public UpstreamRetry quidaxRetry(QuidaxProperties properties) {
+        return retry(properties.getRetry());
+    }
+
+    // Like the breaker below, one limiter for every call to Quidax since they all count against the same quota
+    @Bean
+    public AdaptiveRateLimiter quidaxRateLimiter(QuidaxProperties properties) {
+        return rateLimiter(QuidaxService.NAME, properties.getRateLimit());
+    }
+
+    // Shared by every call to Quidax, blocking or reactive, since they all depend on the same upstream
+    @Bean
+    public CircuitBreaker quidaxCircuitBreaker(QuidaxProperties properties) {
+        return circuitBreaker(QuidaxService.NAME, properties.getCircuitBreaker());
+    }
+
+    @Bean
+    public RestTemplate quidaxRestTemplate(ObjectProvider<RestTemplateBuilder> builderProvider,
+                                           HttpClient quidaxHttpClient, AdaptiveRateLimiter quidaxRateLimiter,
+                                           QuidaxProperties properties) {
+        return restTemplate(builderProvider, quidaxHttpClient, quidaxRateLimiter, properties.getHttp());
+    }
+
+    // The factories below are shared with ExchangeConfig, which builds the same stack for every other venue
+
+    static UpstreamRetry retry(QuidaxProperties.Retry settings) {
+        return new UpstreamRetry(settings.getMaxAttempts(), settings.getInitialBackoff(), settings.getMaxBackoff(),
+                settings.getTimeout(), settings.isHedge(), settings.getHedgePercentile(), settings.getMinHedgeDelay());
+    }
+
+    static AdaptiveRateLimiter rateLimiter(String name, QuidaxProperties.RateLimit settings) {
+        return new AdaptiveRateLimiter(name, settings.getPermitsPerSecond(), settings.getBurst(),
+                settings.getMinPermitsPerSecond(), settings.getBackoffFactor(), settings.getRecoveryPerSecond(),
+                settings.getMaxWait());
+    }
+
+    static CircuitBreaker circuitBreaker(String name, QuidaxProperties.CircuitBreaker settings) {
+        return new CircuitBreaker(name, settings.getFailureThreshold(), settings.getOpenDuration(),
+                settings.getHalfOpenProbes());
+    }
+
+    static RestTemplate restTemplate(ObjectProvider<RestTemplateBuilder> builderProvider, HttpClient httpClient,
+                                     AdaptiveRateLimiter rateLimiter, QuidaxProperties.Http http) {
+        // Boot only auto-configures the builder outside reactive apps, and the background
+        // poller still uses this template with the reactive profile
+        RestTemplateBuilder builder = builderProvider.getIfAvailable(RestTemplateBuilder::new);
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(http.getReadTimeout());
+
+        return builder
+                .requestFactory(() -> requestFactory)
+                // Wait for a rate limit permit before taking a connection, not while holding one
+                .additionalInterceptors(new RateLimitInterceptor(rateLimiter),
+                        new ConnectionLimitInterceptor(http.getMaxConnections(), http.getConnectTimeout()))
+                .build();
+    }
+}
@@ -0,0 +1,146 @@
+package com.codewithudo.cryptocurrencypriceticker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "quidax")
+public class QuidaxProperties {
+
+    private String baseUrl = "https://app.quidax.io";
+    private long refreshIntervalMs = 1000;
+    private boolean snapshotLookupEnabled = true;
+    // Most markets one ?markets= request may ask for; more is a 400
+    private int maxBatchMarkets = 100;
+    private Cache cache = new Cache();
+    private Http http = new Http();
+    private Retry retry = new Retry();
+    private RateLimit rateLimit = new RateLimit();
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private History history = new History();
+    private Candles candles = new Candles();
+    private Stream stream = new Stream();
+    private Websocket websocket = new Websocket();
+    // Other exchanges that serve the Quidax API, by name, e.g. quidax.venues.sandbox.base-url=...
+    private Map<String, Venue> venues = new LinkedHashMap<>();
+
+    @Data
+    public static class Cache {
+        // Older than this: still served, but a background refresh is kicked off
+        private Duration softTtl = Duration.ofSeconds(5);
+        // Older than this: the caller waits for a fresh value
+        private Duration hardTtl = Duration.ofSeconds(30);
+        // How long a market the exchange says it doesn't have is answered as unknown without asking again
+        private Duration unknownMarketTtl = Duration.ofSeconds(30);
+        // Per-market overrides, e.g. quidax.cache.markets.btcngn.soft-ttl=2s
+        private Map<String, Ttl> markets = new LinkedHashMap<>();
+
+        public Duration softTtlFor(String market) {
+            Ttl ttl = markets.get(market);
+            return ttl != null && ttl.getSoftTtl() != null ? ttl.getSoftTtl() : softTtl;
+        }
+
+        public Duration hardTtlFor(String market) {
+            Ttl ttl = markets.get(market);
+            return ttl != null && ttl.getHardTtl() != null ? ttl.getHardTtl() : hardTtl;
+        }
+    }
+
+    @Data
+    public static class Ttl {
+        private Duration softTtl;
+        private Duration hardTtl;
+    }
+
+    @Data
+    public static class Venue {
+        private String baseUrl;
+    }
+
+    @Data
+    public static class Http {
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        private Duration readTimeout = Duration.ofSeconds(5);
+        // Upper bound on requests open against Quidax at the same time
+        private int maxConnections = 20;
+        // Negotiated via ALPN; falls back to HTTP/1.1 if the server doesn't offer h2
+        private boolean http2 = true;
+        // Markets fetched one by one for a batch: how many at a time, and how long the batch may take
+        // before it's answered with whatever has arrived
+        private int fanOutParallelism = 8;
+        private Duration fanOutTimeout = Duration.ofSeconds(2);
+    }
+
+    @Data
+    public static class Retry {
+        // Including the first attempt; backoff between attempts is random up to initial * 2^n, capped
+        private int maxAttempts = 3;
+        private Duration initialBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(1);
+        // For the whole call, retries and hedges included
+        private Duration timeout = Duration.ofSeconds(5);
+        // Send a second request when the first is slower than this percentile of recent calls
+        private boolean hedge = false;
+        private double hedgePercentile = 0.95;
+        private Duration minHedgeDelay = Duration.ofMillis(20);
+    }
+
+    @Data
+    public static class RateLimit {
+        // Our share of the Quidax quota, and how many calls may go out back to back
+        private double permitsPerSecond = 10;
+        private int burst = 20;
+        // On a 429 the rate is multiplied by the backoff factor, but never below the minimum...
+        private double minPermitsPerSecond = 0.5;
+        private double backoffFactor = 0.5;
+        // ...and then grows back by this many requests/s every second
+        private double recoveryPerSecond = 0.5;
+        // Calls that would have to wait longer than this for a permit fail instead
+        private Duration maxWait = Duration.ofSeconds(2);
+    }
+
+    @Data
+    public static class CircuitBreaker {
+        // Failed Quidax calls in a row before we stop calling it
+        private int failureThreshold = 5;
+        // How long to fail fast (and serve cached data) before probing again
+        private Duration openDuration = Duration.ofSeconds(10);
+        // Calls let through to test whether Quidax is back
+        private int halfOpenProbes = 1;
+    }
+
+    @Data
+    public static class History {
+        // Ticks kept per market for /tickers/{market}/history; the oldest is overwritten once full
+        private int capacity = 1024;
+    }
+
+    @Data
+    public static class Candles {
+        // Bars kept per market for each interval (1m, 5m, 1h, 1d)
+        private int capacity = 500;
+    }
+
+    @Data
+    public static class Stream {
+        private long heartbeatIntervalMs = 15000;
+        // A subscriber whose current write has been stuck this long is disconnected
+        private Duration sendTimeLimit = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Websocket {
+        // Origin patterns allowed to connect; empty means same-origin only
+        private List<String> allowedOrigins = new ArrayList<>();
+        // Outgoing messages queued for a client that isn't keeping up; past either limit it is disconnected
+        private int sendBufferBytes = 256 * 1024;
+        private Duration sendTimeLimit = Duration.ofSeconds(10);
+        private int maxSubscriptions = 500;
+    }
+}
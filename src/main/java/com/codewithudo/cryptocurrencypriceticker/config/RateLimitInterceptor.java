@@ -0,0 +1,31 @@
+package com.codewithudo.cryptocurrencypriceticker.config;
+
+import com.codewithudo.cryptocurrencypriceticker.service.AdaptiveRateLimiter;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+
+/**
+ * Takes a permit from the shared {@link AdaptiveRateLimiter} before each request to Quidax, and
+ * reports the response back so 429s and {@code Retry-After} slow everyone down.
+ */
+public class RateLimitInterceptor implements ClientHttpRequestInterceptor {
+
+    private final AdaptiveRateLimiter rateLimiter;
+
+    public RateLimitInterceptor(AdaptiveRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        rateLimiter.acquire();
+        ClientHttpResponse response = execution.execute(request, body);
+        rateLimiter.onResponse(response.getStatusCode(), response.getHeaders());
+        return response;
+    }
+}
@@ -0,0 +1,48 @@
+package com.codewithudo.cryptocurrencypriceticker.config;
+
+import com.codewithudo.cryptocurrencypriceticker.service.AdaptiveRateLimiter;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.http.HttpClient;
+
+/**
+ * Beans for the "reactive" profile, which runs the API on WebFlux instead of the servlet stack.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+    // Tomcat is on the classpath for the servlet stack, and Boot would run WebFlux on it too.
+    // The point of this profile is Netty's event loop, so ask for it explicitly.
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public WebClient quidaxWebClient(WebClient.Builder builder, HttpClient quidaxHttpClient,
+                                     AdaptiveRateLimiter quidaxRateLimiter, QuidaxProperties properties) {
+        // Same HttpClient (and connection pool / HTTP/2 connection) as the blocking RestTemplate,
+        // driven through sendAsync so no thread waits on the response
+        JdkClientHttpConnector connector = new JdkClientHttpConnector(quidaxHttpClient);
+        connector.setReadTimeout(properties.getHttp().getReadTimeout());
+
+        return builder
+                .baseUrl(properties.getBaseUrl())
+                .clientConnector(connector)
+                // Same rate limiter as the RestTemplate, so both stacks share one Quidax quota
+                .filter((request, next) -> quidaxRateLimiter.acquireLater()
+                        .then(next.exchange(request))
+                        .doOnNext(response -> quidaxRateLimiter.onResponse(response.statusCode(),
+                                response.headers().asHttpHeaders())))
+                // The bulk /tickers payload is collected into memory before parsing
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) DataSize.ofMegabytes(16).toBytes()))
+                .build();
+    }
+}
@@ -0,0 +1,28 @@
+package com.codewithudo.cryptocurrencypriceticker.config;
+
+import com.codewithudo.cryptocurrencypriceticker.controller.TickerWebSocketHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@Profile("!reactive")
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final TickerWebSocketHandler tickerWebSocketHandler;
+    private final QuidaxProperties properties;
+
+    public WebSocketConfig(TickerWebSocketHandler tickerWebSocketHandler, QuidaxProperties properties) {
+        this.tickerWebSocketHandler = tickerWebSocketHandler;
+        this.properties = properties;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(tickerWebSocketHandler, "/api/v1/markets/ws")
+                .setAllowedOriginPatterns(properties.getWebsocket().getAllowedOrigins().toArray(String[]::new));
+    }
+}
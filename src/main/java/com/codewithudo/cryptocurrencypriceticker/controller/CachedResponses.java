@@ -0,0 +1,104 @@
+package com.codewithudo.cryptocurrencypriceticker.controller;
+
+import com.codewithudo.cryptocurrencypriceticker.service.CachedValue;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+
+/**
+ * Turns cached tickers into responses. Shared by the servlet and reactive controllers so both
+ * stacks answer with the same bytes and headers.
+ */
+final class CachedResponses {
+
+    private static final String SNAPSHOT_VERSION_HEADER = "X-Snapshot-Version";
+    // RFC 7234 warn-code for a response served past its freshness lifetime
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+    private CachedResponses() {
+    }
+
+    // Both endpoints write JSON the snapshot already rendered, so there's no Jackson work per request
+
+    static ResponseEntity<byte[]> tickers(CachedValue<?> cached, String acceptEncoding, String ifNoneMatch) {
+        if (isNotModified(cached, ifNoneMatch)) {
+            return notModified(cached).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+        }
+
+        // The full map is big enough to be worth compressing; the variants are built once per snapshot
+        String encoding = ContentEncodings.choose(acceptEncoding, cached.getEncodedJson().keySet());
+        ResponseEntity.BodyBuilder response = ok(cached).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (encoding == null) {
+            return response.body(cached.getJson());
+        }
+        return response
+                .header(HttpHeaders.CONTENT_ENCODING, encoding)
+                .body(cached.getEncodedJson().get(encoding));
+    }
+
+    static ResponseEntity<byte[]> ticker(CachedValue<?> cached, String ifNoneMatch) {
+        if (cached == null) {
+            return ResponseEntity.ok().build();
+        }
+        if (isNotModified(cached, ifNoneMatch)) {
+            return notModified(cached).build();
+        }
+        return ok(cached).body(cached.getJson());
+    }
+
+    // The standard Age header (in seconds) tells clients how old the data we're serving is
+    private static ResponseEntity.BodyBuilder ok(CachedValue<?> cached) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AGE, String.valueOf(cached.getAgeMillis() / 1000));
+        if (cached.getEtag() != null) {
+            response.eTag(cached.getEtag());
+        }
+        if (cached.getVersion() != null) {
+            response.header(SNAPSHOT_VERSION_HEADER, cached.getVersion());
+        }
+        if (cached.isStale()) {
+            response.header(HttpHeaders.WARNING, STALE_WARNING);
+        }
+        return response;
+    }
+
+    private static ResponseEntity.HeadersBuilder<?> notModified(CachedValue<?> cached) {
+        ResponseEntity.HeadersBuilder<?> response = ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(cached.getEtag())
+                .header(HttpHeaders.AGE, String.valueOf(cached.getAgeMillis() / 1000));
+        if (cached.isStale()) {
+            response.header(HttpHeaders.WARNING, STALE_WARNING);
+        }
+        return response;
+    }
+
+    // Quidax is down (or we're holding off calling it) and we have nothing cached to answer with
+    static ResponseEntity<byte[]> unavailable(Duration retryAfter) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())))
+                .build();
+    }
+
+    // If-None-Match uses weak comparison, so W/ prefixes are ignored on both sides
+    private static boolean isNotModified(CachedValue<?> cached, String ifNoneMatch) {
+        if (cached.getEtag() == null || ifNoneMatch == null) {
+            return false;
+        }
+        String etag = stripWeak(cached.getEtag());
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || stripWeak(tag).equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
@@ -0,0 +1,55 @@
+package com.codewithudo.cryptocurrencypriceticker.controller;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Picks which pre-compressed variant to send for an {@code Accept-Encoding} header.
+ */
+final class ContentEncodings {
+
+    private ContentEncodings() {
+    }
+
+    /**
+     * The acceptable encoding with the highest q-value, ties going to whichever comes first in
+     * {@code available}; {@code null} if the client accepts none of them.
+     */
+    static String choose(String acceptEncoding, Set<String> available) {
+        if (acceptEncoding == null || acceptEncoding.isBlank() || available.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Double> weights = new HashMap<>();
+        for (String part : acceptEncoding.split(",")) {
+            String[] pieces = part.split(";");
+            String coding = pieces[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1.0;
+            for (int i = 1; i < pieces.length; i++) {
+                // Parameter names are case-insensitive, so "gzip;Q=0" refuses gzip too
+                String param = pieces[i].trim().toLowerCase(Locale.ROOT);
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            weights.put(coding, q);
+        }
+
+        String best = null;
+        double bestWeight = 0;
+        for (String coding : available) {
+            double weight = weights.getOrDefault(coding, weights.getOrDefault("*", 0.0));
+            if (weight > bestWeight) {
+                best = coding;
+                bestWeight = weight;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,237 @@
+package com.codewithudo.cryptocurrencypriceticker.controller;
+
+import com.codewithudo.cryptocurrencypriceticker.dto.BestBidOffer;
+import com.codewithudo.cryptocurrencypriceticker.dto.Candle;
+import com.codewithudo.cryptocurrencypriceticker.dto.Tick;
+import com.codewithudo.cryptocurrencypriceticker.dto.Ticker;
+import com.codewithudo.cryptocurrencypriceticker.service.BestBidOfferService;
+import com.codewithudo.cryptocurrencypriceticker.service.CachedValue;
+import com.codewithudo.cryptocurrencypriceticker.service.CandleInterval;
+import com.codewithudo.cryptocurrencypriceticker.service.CandleService;
+import com.codewithudo.cryptocurrencypriceticker.service.CircuitOpenException;
+import com.codewithudo.cryptocurrencypriceticker.service.ExchangeRegistry;
+import com.codewithudo.cryptocurrencypriceticker.service.QuidaxService;
+import com.codewithudo.cryptocurrencypriceticker.service.RateLimitedException;
+import com.codewithudo.cryptocurrencypriceticker.service.ReactiveQuidaxService;
+import com.codewithudo.cryptocurrencypriceticker.service.ReactiveTickerStreamService;
+import com.codewithudo.cryptocurrencypriceticker.service.TickHistoryService;
+import com.codewithudo.cryptocurrencypriceticker.service.TickerSnapshot;
+import com.codewithudo.cryptocurrencypriceticker.service.TickerSnapshotService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The same API as {@link TickerController} on WebFlux, for the "reactive" profile. Reads are served
+ * from the snapshot exactly as on the servlet stack; where that one would block a thread waiting
+ * for Quidax (no snapshot yet, or past the hard TTL) this one waits on {@link ReactiveQuidaxService}.
+ * Other exchanges have no reactive client, so their markets go through the {@link ExchangeRegistry}
+ * as on the servlet stack, blocking a bounded elastic thread rather than the event loop.
+ * Publishing what comes back renders and compresses the whole snapshot and runs every listener, so
+ * that happens on the bounded elastic scheduler, never on the event loop.
+ */
+@Slf4j
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/v1/markets")
+public class ReactiveTickerController {
+
+    private final TickerSnapshotService tickerSnapshotService;
+    private final ExchangeRegistry exchangeRegistry;
+    private final ReactiveQuidaxService reactiveQuidaxService;
+    private final ReactiveTickerStreamService tickerStreamService;
+    private final BestBidOfferService bestBidOfferService;
+    private final TickHistoryService tickHistoryService;
+    private final CandleService candleService;
+
+    public ReactiveTickerController(TickerSnapshotService tickerSnapshotService,
+                                    ExchangeRegistry exchangeRegistry,
+                                    ReactiveQuidaxService reactiveQuidaxService,
+                                    ReactiveTickerStreamService tickerStreamService,
+                                    BestBidOfferService bestBidOfferService,
+                                    TickHistoryService tickHistoryService,
+                                    CandleService candleService) {
+        this.tickerSnapshotService = tickerSnapshotService;
+        this.exchangeRegistry = exchangeRegistry;
+        this.reactiveQuidaxService = reactiveQuidaxService;
+        this.tickerStreamService = tickerStreamService;
+        this.bestBidOfferService = bestBidOfferService;
+        this.tickHistoryService = tickHistoryService;
+        this.candleService = candleService;
+    }
+
+    @GetMapping("/tickers")
+    public Mono<ResponseEntity<byte[]>> getAllTickers(
+            @RequestParam(required = false) List<String> markets,
+            @RequestParam(required = false) String since,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        int maxMarkets = tickerSnapshotService.getMaxBatchMarkets();
+        if (markets != null && new HashSet<>(markets).size() > maxMarkets) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + maxMarkets + " markets per request");
+        }
+        if (markets == null || markets.isEmpty()) {
+            return freshSnapshot()
+                    .map(snapshot -> tickerSnapshotService.getTickers(snapshot, null, since))
+                    .switchIfEmpty(Mono.fromSupplier(() -> tickerSnapshotService.getTickers(null)))
+                    .map(cached -> CachedResponses.tickers(cached, acceptEncoding, ifNoneMatch));
+        }
+
+        // A batch can still be answered market by market when the bulk endpoint is down
+        return freshSnapshot()
+                .map(Optional::of)
+                .onErrorResume(e -> {
+                    log.warn("Bulk tickers unavailable, fetching {} markets individually: {}", markets.size(), e.getMessage());
+                    return Mono.empty();
+                })
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(snapshot -> fetchMissing(markets)
+                        .then(Mono.fromSupplier(() -> tickerSnapshotService.getTickers(snapshot.orElse(null), markets, since))))
+                .map(cached -> CachedResponses.tickers(cached, acceptEncoding, ifNoneMatch));
+    }
+
+    private Mono<Void> fetchMissing(List<String> markets) {
+        List<String> quidax = new ArrayList<>();
+        List<String> venues = new ArrayList<>();
+        for (String market : tickerSnapshotService.getMissingMarkets(markets)) {
+            (isQuidaxMarket(market) ? quidax : venues).add(market);
+        }
+        Mono<Void> fromQuidax = quidax.isEmpty() ? Mono.empty() : reactiveQuidaxService.getMarkets(quidax)
+                .doOnNext(fetched -> fetched.forEach(tickerSnapshotService::cacheMarket))
+                .then();
+        Mono<Void> fromVenues = venues.isEmpty() ? Mono.empty()
+                : Mono.fromRunnable(() -> tickerSnapshotService.fetchMarkets(venues))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .then();
+        return Mono.when(fromQuidax, fromVenues);
+    }
+
+    @GetMapping(path = "/tickers/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Map<String, Ticker>>> streamTickers(@RequestParam(required = false) List<String> markets) {
+        return tickerStreamService.subscribe(markets);
+    }
+
+    @GetMapping("/tickers/{market}")
+    public Mono<ResponseEntity<byte[]>> getTickerByMarket(
+            @PathVariable String market,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return freshTicker(market)
+                .map(cached -> CachedResponses.ticker(cached, ifNoneMatch))
+                .defaultIfEmpty(CachedResponses.ticker(null, ifNoneMatch));
+    }
+
+    private Mono<TickerSnapshot> freshSnapshot() {
+        TickerSnapshot snapshot = tickerSnapshotService.getSnapshotIfFresh();
+        if (snapshot != null) {
+            return Mono.just(snapshot);
+        }
+
+        TickerSnapshot stale = tickerSnapshotService.getSnapshot();
+        Mono<TickerSnapshot> refreshed = reactiveQuidaxService.getMarkets()
+                .publishOn(Schedulers.boundedElastic())
+                .mapNotNull(markets -> tickerSnapshotService.update(QuidaxService.NAME, markets));
+        if (stale == null) {
+            return refreshed;
+        }
+        return refreshed.onErrorResume(e -> {
+            log.warn("Serving tickers past their hard TTL, refresh failed: {}", e.getMessage());
+            return Mono.just(stale);
+        });
+    }
+
+    private Mono<CachedValue<Ticker>> freshTicker(String market) {
+        CachedValue<Ticker> cached = tickerSnapshotService.getTickerIfFresh(market);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+
+        if (!isQuidaxMarket(market)) {
+            return Mono.fromSupplier(() -> tickerSnapshotService.getTicker(market))
+                    .subscribeOn(Schedulers.boundedElastic());
+        }
+
+        CachedValue<Ticker> stale = tickerSnapshotService.lookup(market);
+        if (tickerSnapshotService.isUnknown(market)) {
+            return Mono.justOrEmpty(stale);
+        }
+        Mono<?> reload = tickerSnapshotService.isInSnapshot(market)
+                ? reactiveQuidaxService.getMarkets()
+                        .publishOn(Schedulers.boundedElastic())
+                        .doOnNext(markets -> tickerSnapshotService.update(QuidaxService.NAME, markets))
+                : reactiveQuidaxService.getMarket(market)
+                        .doOnNext(marketData -> tickerSnapshotService.cacheMarket(market, marketData))
+                        .switchIfEmpty(Mono.fromRunnable(() -> tickerSnapshotService.cacheMarket(market, null)));
+        Mono<CachedValue<Ticker>> reloaded = reload
+                .then(Mono.fromSupplier(() -> tickerSnapshotService.lookup(market)))
+                .switchIfEmpty(Mono.justOrEmpty(stale));
+        if (stale == null) {
+            return reloaded;
+        }
+        return reloaded.onErrorResume(e -> {
+            log.warn("Serving {} past its hard TTL, refresh failed: {}", market, e.getMessage());
+            return Mono.just(stale);
+        });
+    }
+
+    private boolean isQuidaxMarket(String market) {
+        return exchangeRegistry.exchangeOf(market).equals(QuidaxService.NAME);
+    }
+
+    // Recent ticks for a market, oldest first; from and to are epoch seconds like a ticker's "at"
+    @GetMapping("/tickers/{market}/history")
+    public List<Tick> getTickerHistory(@PathVariable String market,
+                                       @RequestParam(required = false) Long from,
+                                       @RequestParam(required = false) Long to) {
+        return tickHistoryService.getHistory(market, from, to);
+    }
+
+    // OHLCV bars for a market at 1m, 5m, 1h or 1d, oldest first; from and to are epoch seconds
+    @GetMapping("/candles/{market}")
+    public List<Candle> getCandles(@PathVariable String market,
+                                   @RequestParam(defaultValue = "1m") String interval,
+                                   @RequestParam(required = false) Long from,
+                                   @RequestParam(required = false) Long to) {
+        CandleInterval candleInterval = CandleInterval.of(interval);
+        if (candleInterval == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "interval must be one of 1m, 5m, 1h, 1d");
+        }
+        return candleService.getCandles(market, candleInterval, from, to);
+    }
+
+    // Best bid and best ask for a market across every exchange we track, and which exchange has each
+    @GetMapping("/bbo/{market}")
+    public ResponseEntity<BestBidOffer> getBestBidOffer(@PathVariable String market) {
+        return ResponseEntity.ofNullable(bestBidOfferService.get(market));
+    }
+
+    @ExceptionHandler(CircuitOpenException.class)
+    public ResponseEntity<byte[]> circuitOpen(CircuitOpenException e) {
+        return CachedResponses.unavailable(e.getRetryAfter());
+    }
+
+    @ExceptionHandler(RateLimitedException.class)
+    public ResponseEntity<byte[]> rateLimited(RateLimitedException e) {
+        return CachedResponses.unavailable(e.getRetryAfter());
+    }
+}
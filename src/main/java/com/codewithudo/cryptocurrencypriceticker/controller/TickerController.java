@@ -1,31 +1,120 @@
 package com.codewithudo.cryptocurrencypriceticker.controller;
 
-import com.codewithudo.cryptocurrencypriceticker.dto.Ticker;
-import com.codewithudo.cryptocurrencypriceticker.service.QuidaxService;
+import com.codewithudo.cryptocurrencypriceticker.dto.BestBidOffer;
+import com.codewithudo.cryptocurrencypriceticker.dto.Candle;
+import com.codewithudo.cryptocurrencypriceticker.dto.Tick;
+import com.codewithudo.cryptocurrencypriceticker.service.BestBidOfferService;
+import com.codewithudo.cryptocurrencypriceticker.service.CachedValue;
+import com.codewithudo.cryptocurrencypriceticker.service.CandleInterval;
+import com.codewithudo.cryptocurrencypriceticker.service.CandleService;
+import com.codewithudo.cryptocurrencypriceticker.service.CircuitOpenException;
+import com.codewithudo.cryptocurrencypriceticker.service.RateLimitedException;
+import com.codewithudo.cryptocurrencypriceticker.service.TickHistoryService;
+import com.codewithudo.cryptocurrencypriceticker.service.TickerSnapshotService;
+import com.codewithudo.cryptocurrencypriceticker.service.TickerStreamService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.Map;
+import java.util.HashSet;
+import java.util.List;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/v1/markets")
 public class TickerController {
 
-    private final QuidaxService quidaxService;
+    private final TickerSnapshotService tickerSnapshotService;
+    private final TickerStreamService tickerStreamService;
+    private final BestBidOfferService bestBidOfferService;
+    private final TickHistoryService tickHistoryService;
+    private final CandleService candleService;
 
-    public TickerController(QuidaxService quidaxService) {
-        this.quidaxService = quidaxService;
+    public TickerController(TickerSnapshotService tickerSnapshotService, TickerStreamService tickerStreamService,
+                            BestBidOfferService bestBidOfferService, TickHistoryService tickHistoryService,
+                            CandleService candleService) {
+        this.tickerSnapshotService = tickerSnapshotService;
+        this.tickerStreamService = tickerStreamService;
+        this.bestBidOfferService = bestBidOfferService;
+        this.tickHistoryService = tickHistoryService;
+        this.candleService = candleService;
     }
 
+    // With ?markets=btcngn,ethngn only those markets are returned, in that order, and with
+    // ?since={version} (the X-Snapshot-Version of a previous response) only the ones that changed,
+    // with null for any removed since
     @GetMapping("/tickers")
-    public Map<String, Ticker> getAllTickers() {
-        return quidaxService.getTickers();
+    public ResponseEntity<byte[]> getAllTickers(
+            @RequestParam(required = false) List<String> markets,
+            @RequestParam(required = false) String since,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        int maxMarkets = tickerSnapshotService.getMaxBatchMarkets();
+        if (markets != null && new HashSet<>(markets).size() > maxMarkets) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + maxMarkets + " markets per request");
+        }
+        CachedValue<?> cached = tickerSnapshotService.getTickers(markets, since);
+        return CachedResponses.tickers(cached, acceptEncoding, ifNoneMatch);
+    }
+
+    // Server-Sent Events: the current tickers first, then every change as it's polled from Quidax
+    @GetMapping(path = "/tickers/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTickers(@RequestParam(required = false) List<String> markets) {
+        return tickerStreamService.subscribe(markets);
     }
 
     @GetMapping("/tickers/{market}")
-    public Ticker getTickerByMarket(@PathVariable String market) {
-        return quidaxService.getTicker(market);
+    public ResponseEntity<byte[]> getTickerByMarket(
+            @PathVariable String market,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return CachedResponses.ticker(tickerSnapshotService.getTicker(market), ifNoneMatch);
+    }
+
+    // Recent ticks for a market, oldest first; from and to are epoch seconds like a ticker's "at"
+    @GetMapping("/tickers/{market}/history")
+    public List<Tick> getTickerHistory(@PathVariable String market,
+                                       @RequestParam(required = false) Long from,
+                                       @RequestParam(required = false) Long to) {
+        return tickHistoryService.getHistory(market, from, to);
+    }
+
+    // OHLCV bars for a market at 1m, 5m, 1h or 1d, oldest first; from and to are epoch seconds
+    @GetMapping("/candles/{market}")
+    public List<Candle> getCandles(@PathVariable String market,
+                                   @RequestParam(defaultValue = "1m") String interval,
+                                   @RequestParam(required = false) Long from,
+                                   @RequestParam(required = false) Long to) {
+        CandleInterval candleInterval = CandleInterval.of(interval);
+        if (candleInterval == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "interval must be one of 1m, 5m, 1h, 1d");
+        }
+        return candleService.getCandles(market, candleInterval, from, to);
+    }
+
+    // Best bid and best ask for a market across every exchange we track, and which exchange has each
+    @GetMapping("/bbo/{market}")
+    public ResponseEntity<BestBidOffer> getBestBidOffer(@PathVariable String market) {
+        return ResponseEntity.ofNullable(bestBidOfferService.get(market));
+    }
+
+    @ExceptionHandler(CircuitOpenException.class)
+    public ResponseEntity<byte[]> circuitOpen(CircuitOpenException e) {
+        return CachedResponses.unavailable(e.getRetryAfter());
+    }
+
+    @ExceptionHandler(RateLimitedException.class)
+    public ResponseEntity<byte[]> rateLimited(RateLimitedException e) {
+        return CachedResponses.unavailable(e.getRetryAfter());
     }
 }
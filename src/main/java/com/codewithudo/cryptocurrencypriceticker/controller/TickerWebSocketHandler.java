@@ -0,0 +1,266 @@
+package com.codewithudo.cryptocurrencypriceticker.controller;
+
+import com.codewithudo.cryptocurrencypriceticker.config.QuidaxProperties;
+import com.codewithudo.cryptocurrencypriceticker.dto.SubscriptionRequest;
+import com.codewithudo.cryptocurrencypriceticker.service.ConflatingPublisher;
+import com.codewithudo.cryptocurrencypriceticker.service.TickerSnapshot;
+import com.codewithudo.cryptocurrencypriceticker.service.TickerSnapshotPublishedEvent;
+import com.codewithudo.cryptocurrencypriceticker.service.TickerSnapshotService;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * WebSocket feed at {@code /api/v1/markets/ws}. Clients send
+ * {@code {"action":"subscribe","markets":["btcngn"]}} (or {@code "unsubscribe"}) and receive
+ * {@code {"type":"tickers","version":42,"data":{"btcngn":{...}}}} whenever a subscribed market changes.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+public class TickerWebSocketHandler extends TextWebSocketHandler {
+
+    private final TickerSnapshotService tickerSnapshotService;
+    private final ObjectMapper objectMapper;
+    private final QuidaxProperties.Websocket settings;
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+
+    // Writes happen on virtual threads so a client with a full TCP window only ever blocks its own
+    // writes, never the fan-out loop or the other connections
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+
+    public TickerWebSocketHandler(TickerSnapshotService tickerSnapshotService, ObjectMapper objectMapper,
+                                  QuidaxProperties properties) {
+        this.tickerSnapshotService = tickerSnapshotService;
+        this.objectMapper = objectMapper;
+        this.settings = properties.getWebsocket();
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        // Ticker updates are conflated before they get here, so the decorator's buffer only ever
+        // holds the odd error message queued behind an update; it's what makes writes thread-safe
+        WebSocketSession concurrent = new ConcurrentWebSocketSessionDecorator(session,
+                (int) settings.getSendTimeLimit().toMillis(), settings.getSendBufferBytes(),
+                ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE);
+        connections.put(session.getId(), new Connection(concurrent));
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Connection connection = connections.remove(session.getId());
+        if (connection != null) {
+            connection.publisher.close();
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        Connection connection = connections.get(session.getId());
+        if (connection == null) {
+            return;
+        }
+
+        SubscriptionRequest request;
+        try {
+            request = objectMapper.readValue(message.getPayload(), SubscriptionRequest.class);
+        } catch (IOException e) {
+            sendError(connection, "Could not parse message");
+            return;
+        }
+        Set<String> markets = request.getMarkets() != null ? new LinkedHashSet<>(request.getMarkets()) : Set.of();
+
+        if ("subscribe".equals(request.getAction())) {
+            // Repeats, within the message or of markets already subscribed, don't count towards the limit
+            long added = markets.stream().filter(market -> !connection.markets.contains(market)).count();
+            if (connection.markets.size() + added > settings.getMaxSubscriptions()) {
+                sendError(connection, "At most " + settings.getMaxSubscriptions() + " markets per connection");
+                return;
+            }
+            connection.subscribe(markets);
+        } else if ("unsubscribe".equals(request.getAction())) {
+            markets.forEach(connection.markets::remove);
+        } else {
+            sendError(connection, "Unknown action: " + request.getAction());
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.debug("WebSocket transport error on {}: {}", session.getId(), exception.getMessage());
+        afterConnectionClosed(session, CloseStatus.SERVER_ERROR);
+    }
+
+    @EventListener
+    public void onSnapshotPublished(TickerSnapshotPublishedEvent event) {
+        TickerSnapshot snapshot = event.getSnapshot();
+        Set<String> changed = event.getChangedMarkets();
+        if (changed.isEmpty() || connections.isEmpty()) {
+            return;
+        }
+
+        // Each changed market's `"market":{...}` fragment is built once and shared by every connection
+        Map<String, byte[]> fragments = fragments(snapshot, changed);
+        for (Connection connection : connections.values()) {
+            if (connection.publisher.isStalled(settings.getSendTimeLimit())) {
+                log.debug("Disconnecting slow WebSocket client {}", connection.session.getId());
+                close(connection, CloseStatus.SESSION_NOT_RELIABLE);
+                continue;
+            }
+            connection.publish(event, fragments);
+        }
+    }
+
+    private Map<String, byte[]> fragments(TickerSnapshot snapshot, Collection<String> markets) {
+        Map<String, byte[]> fragments = new HashMap<>(markets.size() * 2);
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        for (String market : markets) {
+            byte[] json = snapshot.getTickerJson(market);
+            if (json == null) {
+                continue;
+            }
+            ByteArrayOutputStream fragment = new ByteArrayOutputStream(json.length + market.length() + 3);
+            fragment.write('"');
+            fragment.writeBytes(encoder.quoteAsUTF8(market));
+            fragment.write('"');
+            fragment.write(':');
+            fragment.writeBytes(json);
+            fragments.put(market, fragment.toByteArray());
+        }
+        return fragments;
+    }
+
+    private static TextMessage tickersMessage(long version, Collection<byte[]> fragments) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        out.writeBytes(("{\"type\":\"tickers\",\"version\":" + version + ",\"data\":{")
+                .getBytes(StandardCharsets.UTF_8));
+        boolean first = true;
+        for (byte[] fragment : fragments) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.writeBytes(fragment);
+        }
+        out.write('}');
+        out.write('}');
+        return new TextMessage(out.toByteArray());
+    }
+
+    private void sendError(Connection connection, String error) {
+        TextMessage message;
+        try {
+            message = new TextMessage(objectMapper.writeValueAsBytes(
+                    objectMapper.createObjectNode().put("type", "error").put("message", error)));
+        } catch (IOException e) {
+            log.debug("Could not render WebSocket error message", e);
+            return;
+        }
+        sender.execute(() -> {
+            try {
+                connection.session.sendMessage(message);
+            } catch (IOException | RuntimeException e) {
+                close(connection, CloseStatus.SERVER_ERROR);
+            }
+        });
+    }
+
+    private void close(Connection connection, CloseStatus status) {
+        connections.remove(connection.session.getId());
+        connection.publisher.close();
+        // Closing writes a close frame, which can block on a slow client just like any other write
+        sender.execute(() -> {
+            try {
+                connection.session.close(status);
+            } catch (IOException e) {
+                log.debug("Error closing WebSocket {}", connection.session.getId(), e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    private class Connection {
+        private final WebSocketSession session;
+        private final Set<String> markets = ConcurrentHashMap.newKeySet();
+        private final ConflatingPublisher<byte[]> publisher;
+        // Version of the newest snapshot handed to the publisher; guarded by this
+        private long sentVersion;
+
+        Connection(WebSocketSession session) {
+            this.session = session;
+            this.publisher = new ConflatingPublisher<>(sender,
+                    (version, fragments) -> session.sendMessage(tickersMessage(version, fragments.values())),
+                    e -> close(this, CloseStatus.SERVER_ERROR));
+        }
+
+        // Sends what we have now so the client doesn't wait for the next change. Under the lock, so
+        // a snapshot published meanwhile waits its turn and can't be overtaken by these older tickers.
+        synchronized void subscribe(Set<String> added) {
+            markets.addAll(added);
+            TickerSnapshot snapshot = tickerSnapshotService.getSnapshot();
+            if (snapshot == null) {
+                return;
+            }
+            Set<String> send = new LinkedHashSet<>(added);
+            if (snapshot.getVersion() > sentVersion) {
+                // Markets it already had may have changed in snapshots whose events haven't reached it yet
+                for (String market : snapshot.getTickersChangedSince(sentVersion).keySet()) {
+                    if (markets.contains(market)) {
+                        send.add(market);
+                    }
+                }
+                sentVersion = snapshot.getVersion();
+            }
+            publisher.publish(snapshot.getVersion(), fragments(snapshot, send));
+        }
+
+        synchronized void publish(TickerSnapshotPublishedEvent event, Map<String, byte[]> changed) {
+            TickerSnapshot snapshot = event.getSnapshot();
+            if (snapshot.getVersion() <= sentVersion) {
+                // Already covered by what it was sent on subscribing, or an event that arrived late
+                return;
+            }
+            // Usually one snapshot behind and served from the shared fragments; otherwise work out its own
+            TickerSnapshot previous = event.getPrevious();
+            Map<String, byte[]> fragments = previous != null && previous.getVersion() == sentVersion
+                    ? changed
+                    : fragments(snapshot, snapshot.getTickersChangedSince(sentVersion).keySet());
+            sentVersion = snapshot.getVersion();
+            Map<String, byte[]> update = new LinkedHashMap<>();
+            for (String market : markets) {
+                byte[] fragment = fragments.get(market);
+                if (fragment != null) {
+                    update.put(market, fragment);
+                }
+            }
+            // Merged per market with anything this client hasn't been sent yet
+            publisher.publish(snapshot.getVersion(), update);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.codewithudo.cryptocurrencypriceticker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The highest bid and lowest ask for a market across every exchange, and which exchange quotes
+ * each. Prices are passed through exactly as that exchange sent them; either side is null if no
+ * exchange quotes it.
+ */
+@Getter
+@AllArgsConstructor
+public class BestBidOffer {
+    private final String market;
+    private final String bid;
+    private final String bidExchange;
+    private final String ask;
+    private final String askExchange;
+    // Snapshot the quotes were taken from: the number after the "<generation>-" in X-Snapshot-Version,
+    // so only comparable between responses from the same process
+    private final long version;
+}
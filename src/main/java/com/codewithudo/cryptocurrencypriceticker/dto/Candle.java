@@ -0,0 +1,18 @@
+package com.codewithudo.cryptocurrencypriceticker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One OHLCV bar: {@code time} is when the bar opens, in epoch seconds.
+ */
+@Getter
+@AllArgsConstructor
+public class Candle {
+    private final long time;
+    private final String open;
+    private final String high;
+    private final String low;
+    private final String close;
+    private final String volume;
+}
@@ -0,0 +1,125 @@
+package com.codewithudo.cryptocurrencypriceticker.dto;
+
+/**
+ * Helpers for decimals held as a {@code long} mantissa plus a number of decimal places,
+ * e.g. "179333769.05" is mantissa 17933376905 at scale 2.
+ */
+public final class FixedPoint {
+
+    // 10^18 is the largest power of ten a long can hold
+    public static final int MAX_SCALE = 18;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Number of digits after the decimal point, or 0 for null/blank/integral values.
+     */
+    public static int scaleOf(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int dot = value.indexOf('.');
+        return dot < 0 ? 0 : Math.min(value.length() - dot - 1, MAX_SCALE);
+    }
+
+    /**
+     * Parses a plain decimal string into a mantissa at the given scale. Extra digits beyond the
+     * scale are truncated; null or blank parses as zero.
+     *
+     * @throws NumberFormatException if the value isn't a plain decimal
+     * @throws ArithmeticException   if the value doesn't fit in a long at this scale
+     */
+    public static long parse(String value, int scale) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        int length = value.length();
+        int i = 0;
+        boolean negative = false;
+        if (value.charAt(0) == '-' || value.charAt(0) == '+') {
+            negative = value.charAt(0) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int fractionDigits = -1;
+        boolean sawDigit = false;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Not a plain decimal: " + value);
+            }
+            sawDigit = true;
+            if (fractionDigits >= 0) {
+                if (fractionDigits == scale) {
+                    continue;
+                }
+                fractionDigits++;
+            }
+            mantissa = Math.addExact(Math.multiplyExact(mantissa, 10), c - '0');
+        }
+        if (!sawDigit) {
+            throw new NumberFormatException("Not a plain decimal: " + value);
+        }
+
+        mantissa = rescale(mantissa, Math.max(fractionDigits, 0), scale);
+        return negative ? -mantissa : mantissa;
+    }
+
+    /**
+     * Moves a mantissa from one scale to another, truncating when the target scale is smaller.
+     */
+    public static long rescale(long mantissa, int fromScale, int toScale) {
+        if (toScale >= fromScale) {
+            return Math.multiplyExact(mantissa, POWERS_OF_TEN[toScale - fromScale]);
+        }
+        return mantissa / POWERS_OF_TEN[fromScale - toScale];
+    }
+
+    /**
+     * Compares two decimals at any scales. Never overflows: integer parts are compared first, and
+     * only fractions (always below 10^18 at the larger scale) are rescaled.
+     */
+    public static int compare(long a, int scaleA, long b, int scaleB) {
+        if (scaleA == scaleB) {
+            return Long.compare(a, b);
+        }
+        long integerA = a / POWERS_OF_TEN[scaleA];
+        long integerB = b / POWERS_OF_TEN[scaleB];
+        if (integerA != integerB) {
+            return Long.compare(integerA, integerB);
+        }
+        int scale = Math.max(scaleA, scaleB);
+        return Long.compare(rescale(a % POWERS_OF_TEN[scaleA], scaleA, scale),
+                rescale(b % POWERS_OF_TEN[scaleB], scaleB, scale));
+    }
+
+    public static String format(long mantissa, int scale) {
+        if (scale == 0) {
+            return Long.toString(mantissa);
+        }
+        StringBuilder digits = new StringBuilder(Long.toString(Math.abs(mantissa)));
+        while (digits.length() <= scale) {
+            digits.insert(0, '0');
+        }
+        digits.insert(digits.length() - scale, '.');
+        if (mantissa < 0) {
+            digits.insert(0, '-');
+        }
+        return digits.toString();
+    }
+}
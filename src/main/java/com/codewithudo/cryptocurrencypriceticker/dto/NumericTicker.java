@@ -0,0 +1,62 @@
+package com.codewithudo.cryptocurrencypriceticker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A {@link Ticker} parsed once into fixed-point longs so it can be compared, sorted and
+ * aggregated without re-parsing strings. The five prices share one scale, the largest number of
+ * decimal places any of them carries; the volume has its own, so a huge volume on a tiny price
+ * (0.00001234 traded a trillion times) can't push the prices out of a long. This is never
+ * serialized; the API keeps returning the {@link Ticker} strings exactly as Quidax sent them.
+ */
+@Getter
+@AllArgsConstructor
+public class NumericTicker {
+    // Of low, high, price, ask and bid
+    private final int scale;
+    private final long low;
+    private final long high;
+    private final int volumeScale;
+    private final long volume;
+    private final long price;
+    private final long ask;
+    private final long bid;
+
+    public static NumericTicker of(Ticker ticker) {
+        return of(ticker, 0, 0);
+    }
+
+    /**
+     * Parses at least {@code minScale} decimal places of the prices and {@code minVolumeScale} of the
+     * volume, so a market can keep its scales across snapshots even when Quidax trims trailing zeros.
+     *
+     * @throws ArithmeticException if a price doesn't fit in a long at its scale
+     */
+    public static NumericTicker of(Ticker ticker, int minScale, int minVolumeScale) {
+        int scale = Math.max(minScale, Math.max(
+                Math.max(FixedPoint.scaleOf(ticker.getLow()), FixedPoint.scaleOf(ticker.getHigh())),
+                Math.max(FixedPoint.scaleOf(ticker.getPrice()),
+                        Math.max(FixedPoint.scaleOf(ticker.getAsk()), FixedPoint.scaleOf(ticker.getBid())))));
+        // Prices are never truncated to make room; if one doesn't fit the ticker can't be parsed
+        long low = FixedPoint.parse(ticker.getLow(), scale);
+        long high = FixedPoint.parse(ticker.getHigh(), scale);
+        long price = FixedPoint.parse(ticker.getPrice(), scale);
+        long ask = FixedPoint.parse(ticker.getAsk(), scale);
+        long bid = FixedPoint.parse(ticker.getBid(), scale);
+
+        // Only the volume gives up decimal places until it fits; only hit by absurdly precise volumes
+        int volumeScale = Math.max(minVolumeScale, FixedPoint.scaleOf(ticker.getVolume()));
+        while (true) {
+            try {
+                return new NumericTicker(scale, low, high, volumeScale,
+                        FixedPoint.parse(ticker.getVolume(), volumeScale), price, ask, bid);
+            } catch (ArithmeticException e) {
+                if (volumeScale == 0) {
+                    throw e;
+                }
+                volumeScale--;
+            }
+        }
+    }
+}
@@ -1,10 +0,0 @@
-package com.codewithudo.cryptocurrencypriceticker.dto;
-
-import lombok.Data;
-import java.util.Map;
-
-@Data
-public class QuidaxResponse {
-    private String status;
-    private Map<String, MarketData> data;
-}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.codewithudo.cryptocurrencypriceticker.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * What a WebSocket client sends to change its market subscriptions, e.g.
+ * {@code {"action":"subscribe","markets":["btcngn","usdtngn"]}}.
+ */
+@Data
+public class SubscriptionRequest {
+    private String action;
+    private List<String> markets;
+}
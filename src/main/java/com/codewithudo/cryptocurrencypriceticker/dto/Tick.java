@@ -0,0 +1,28 @@
+package com.codewithudo.cryptocurrencypriceticker.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One recorded observation of a market, as returned by the history endpoint. Field names follow
+ * the exchange's ticker ({@code at} in epoch seconds, {@code last}, {@code buy}, {@code sell},
+ * {@code vol}).
+ */
+@Getter
+@AllArgsConstructor
+public class Tick {
+    private final long at;
+
+    @JsonProperty("last")
+    private final String price;
+
+    @JsonProperty("buy")
+    private final String bid;
+
+    @JsonProperty("sell")
+    private final String ask;
+
+    @JsonProperty("vol")
+    private final String volume;
+}
@@ -0,0 +1,162 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import reactor.core.publisher.Mono;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket in front of every call to Quidax. Calls beyond the burst wait their turn, up to
+ * {@code maxWait}, after which they fail with {@link RateLimitedException}. A 429 halves the rate
+ * (down to {@code minPermitsPerSecond}) and a {@code Retry-After} pauses all calls until it has
+ * passed; the rate then creeps back up by {@code recoveryPerSecond} every second.
+ */
+@Slf4j
+public class AdaptiveRateLimiter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final String name;
+    private final double maxPermitsPerSecond;
+    private final double burst;
+    private final double minPermitsPerSecond;
+    private final double backoffFactor;
+    private final double recoveryPerSecond;
+    private final Duration maxWait;
+
+    // Guarded by this. tokens goes negative while callers are queued for future permits, and
+    // refilledAt is in the future while a Retry-After pause is in effect.
+    private double permitsPerSecond;
+    private double tokens;
+    private long refilledAt;
+    private long backedOffAt;
+
+    public AdaptiveRateLimiter(String name, double permitsPerSecond, int burst, double minPermitsPerSecond,
+                               double backoffFactor, double recoveryPerSecond, Duration maxWait) {
+        this.name = name;
+        this.maxPermitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.minPermitsPerSecond = minPermitsPerSecond;
+        this.backoffFactor = backoffFactor;
+        this.recoveryPerSecond = recoveryPerSecond;
+        this.maxWait = maxWait;
+        this.permitsPerSecond = permitsPerSecond;
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+        this.backedOffAt = refilledAt - NANOS_PER_SECOND;
+    }
+
+    /**
+     * Blocks until a permit is available.
+     */
+    public void acquire() throws InterruptedIOException {
+        Duration wait = reserve();
+        if (wait.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a Quidax rate limit permit");
+        }
+    }
+
+    /**
+     * Completes once a permit is available, without holding a thread in the meantime.
+     */
+    public Mono<Void> acquireLater() {
+        return Mono.defer(() -> {
+            Duration wait = reserve();
+            return wait.isZero() ? Mono.empty() : Mono.delay(wait).then();
+        });
+    }
+
+    /**
+     * Feeds a Quidax response back into the limiter: a 429 slows us down, and any
+     * {@code Retry-After} (429 or 503) pauses every caller until it has passed.
+     */
+    public void onResponse(HttpStatusCode status, HttpHeaders headers) {
+        boolean throttled = status.value() == HttpStatus.TOO_MANY_REQUESTS.value();
+        Duration retryAfter = retryAfter(headers);
+        if (throttled || retryAfter != null) {
+            onThrottled(throttled, retryAfter);
+        }
+    }
+
+    public synchronized double getPermitsPerSecond() {
+        refill(System.nanoTime());
+        return permitsPerSecond;
+    }
+
+    // Takes a permit, possibly one that only becomes available in the future, and returns how long
+    // to wait for it. Permits are handed out in order, so later callers queue behind earlier ones.
+    private synchronized Duration reserve() {
+        long now = System.nanoTime();
+        refill(now);
+        long waitNanos = Math.max(0, refilledAt - now);
+        if (tokens < 1) {
+            waitNanos += (long) ((1 - tokens) / permitsPerSecond * NANOS_PER_SECOND);
+        }
+        if (waitNanos > maxWait.toNanos()) {
+            throw new RateLimitedException(name, Duration.ofNanos(waitNanos));
+        }
+        tokens--;
+        return Duration.ofNanos(waitNanos);
+    }
+
+    private synchronized void onThrottled(boolean backOff, Duration retryAfter) {
+        long now = System.nanoTime();
+        refill(now);
+        // Every request in flight when the quota ran out comes back 429, so back off once per
+        // second rather than once per response
+        if (backOff && now - backedOffAt >= NANOS_PER_SECOND) {
+            permitsPerSecond = Math.max(minPermitsPerSecond, permitsPerSecond * backoffFactor);
+            backedOffAt = now;
+            log.warn("{} is throttling us, slowing down to {} requests/s", name, String.format("%.2f", permitsPerSecond));
+        }
+        tokens = Math.min(tokens, 0);
+        if (retryAfter != null) {
+            refilledAt = Math.max(refilledAt, now + retryAfter.toNanos());
+        }
+    }
+
+    private void refill(long now) {
+        if (now <= refilledAt) {
+            return;
+        }
+        double elapsedSeconds = (double) (now - refilledAt) / NANOS_PER_SECOND;
+        tokens = Math.min(burst, tokens + elapsedSeconds * permitsPerSecond);
+        permitsPerSecond = Math.min(maxPermitsPerSecond, permitsPerSecond + elapsedSeconds * recoveryPerSecond);
+        refilledAt = now;
+    }
+
+    // Retry-After is either a number of seconds or an HTTP date
+    static Duration retryAfter(HttpHeaders headers) {
+        String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            // not delta-seconds, try a date
+        }
+        try {
+            ZonedDateTime until = headers.getFirstZonedDateTime(HttpHeaders.RETRY_AFTER);
+            if (until == null) {
+                return null;
+            }
+            Duration wait = Duration.between(ZonedDateTime.now(until.getZone()), until);
+            return wait.isNegative() ? Duration.ZERO : wait;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
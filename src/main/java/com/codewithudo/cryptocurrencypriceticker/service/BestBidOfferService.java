@@ -0,0 +1,131 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.config.QuidaxProperties;
+import com.codewithudo.cryptocurrencypriceticker.dto.BestBidOffer;
+import com.codewithudo.cryptocurrencypriceticker.dto.FixedPoint;
+import com.codewithudo.cryptocurrencypriceticker.dto.NumericTicker;
+import com.codewithudo.cryptocurrencypriceticker.dto.Ticker;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Best bid and offer per market across every exchange in the {@link ExchangeRegistry}, where the
+ * same market name on different exchanges ({@code btcngn}, {@code luno:btcngn}) is the same
+ * market. Kept up to date as snapshots are published, recomputing only the markets that changed
+ * on some exchange, so reads are a map lookup. Quotes past their hard TTL are left out, and a
+ * market is recomputed once one of the quotes it was built from gets that old.
+ */
+@Service
+public class BestBidOfferService {
+
+    private final ExchangeRegistry exchangeRegistry;
+    private final QuidaxProperties properties;
+    private final ConcurrentMap<String, Book> books = new ConcurrentHashMap<>();
+    // Newest snapshot seen, to recompute from when a market's quotes expire between snapshots
+    private final AtomicReference<TickerSnapshot> latest = new AtomicReference<>();
+
+    // expiresAt is when the first quote that went into best passes its hard TTL
+    private record Book(BestBidOffer best, long expiresAt) {
+    }
+
+    public BestBidOfferService(ExchangeRegistry exchangeRegistry, QuidaxProperties properties) {
+        this.exchangeRegistry = exchangeRegistry;
+        this.properties = properties;
+    }
+
+    /**
+     * The best bid and offer for {@code market} (an exchange's own market name), or {@code null}
+     * if no exchange quotes it.
+     */
+    public BestBidOffer get(String market) {
+        Book book = books.get(market);
+        if (book != null && System.currentTimeMillis() > book.expiresAt()) {
+            // No snapshot has come along since (every exchange failing, say), so don't wait for one
+            book = update(latest.get(), market);
+        }
+        return book != null ? book.best() : null;
+    }
+
+    @EventListener
+    public void onSnapshotPublished(TickerSnapshotPublishedEvent event) {
+        Set<String> affected = new LinkedHashSet<>();
+        for (String market : event.getChangedMarkets()) {
+            affected.add(exchangeRegistry.localNameOf(market));
+        }
+        for (String market : event.getRemovedMarkets()) {
+            affected.add(exchangeRegistry.localNameOf(market));
+        }
+        long now = System.currentTimeMillis();
+        books.forEach((market, book) -> {
+            if (now > book.expiresAt()) {
+                affected.add(market);
+            }
+        });
+        TickerSnapshot snapshot = event.getSnapshot();
+        latest.accumulateAndGet(snapshot, (current, published) ->
+                current != null && current.getVersion() > published.getVersion() ? current : published);
+        for (String market : affected) {
+            update(snapshot, market);
+        }
+    }
+
+    private Book update(TickerSnapshot snapshot, String market) {
+        Book fresh = compute(snapshot, market);
+        // Events are delivered outside the publish lock, so an older snapshot's can arrive late
+        return books.compute(market, (key, existing) ->
+                existing != null && existing.best().getVersion() > snapshot.getVersion() ? existing : fresh);
+    }
+
+    private Book compute(TickerSnapshot snapshot, String market) {
+        String bid = null;
+        String bidExchange = null;
+        NumericTicker bestBid = null;
+        long bidExpiresAt = Long.MAX_VALUE;
+        String ask = null;
+        String askExchange = null;
+        NumericTicker bestAsk = null;
+        long askExpiresAt = Long.MAX_VALUE;
+
+        long now = System.currentTimeMillis();
+        for (ExchangeAdapter adapter : exchangeRegistry.getAdapters()) {
+            String combined = exchangeRegistry.combinedName(adapter.getName(), market);
+            NumericTicker numeric = snapshot.getNumericTicker(combined);
+            if (numeric == null) {
+                continue;
+            }
+            // Aged from when we fetched it, like the ticker endpoints: a quiet market keeps an old "at"
+            // however often it's polled. A venue that stopped answering drops out of the snapshot.
+            long expiresAt = snapshot.getFetchedAt() + properties.getCache().hardTtlFor(combined).toMillis();
+            if (now > expiresAt) {
+                continue;
+            }
+            Ticker ticker = snapshot.getTicker(combined);
+            // A zero price means the exchange has nothing on that side of the book
+            if (numeric.getBid() > 0 && (bestBid == null
+                    || FixedPoint.compare(numeric.getBid(), numeric.getScale(), bestBid.getBid(), bestBid.getScale()) > 0)) {
+                bestBid = numeric;
+                bid = ticker.getBid();
+                bidExchange = adapter.getName();
+                bidExpiresAt = expiresAt;
+            }
+            if (numeric.getAsk() > 0 && (bestAsk == null
+                    || FixedPoint.compare(numeric.getAsk(), numeric.getScale(), bestAsk.getAsk(), bestAsk.getScale()) < 0)) {
+                bestAsk = numeric;
+                ask = ticker.getAsk();
+                askExchange = adapter.getName();
+                askExpiresAt = expiresAt;
+            }
+        }
+        if (bestBid == null && bestAsk == null) {
+            return null;
+        }
+        return new Book(new BestBidOffer(market, bid, bidExchange, ask, askExchange, snapshot.getVersion()),
+                Math.min(bidExpiresAt, askExpiresAt));
+    }
+}
@@ -0,0 +1,38 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+public class CachedValue<T> {
+    private final T value;
+    // How long ago Quidax produced this value (from MarketData.at)
+    private final long ageMillis;
+    // The value already rendered as a JSON response body
+    private final byte[] json;
+    // Pre-compressed copies of json keyed by Content-Encoding, empty if there are none
+    private final Map<String, byte[]> encodedJson;
+    // Weak entity tag that changes whenever the value does, or null if we can't tell
+    private final String etag;
+    // Version of the snapshot this came from, as sent in X-Snapshot-Version and taken back as ?since=,
+    // or null if it didn't come from one
+    private final String version;
+    // Past its hard TTL: served anyway because Quidax couldn't give us a fresh one
+    private final boolean stale;
+
+    public CachedValue(T value, long ageMillis, byte[] json, Map<String, byte[]> encodedJson, String etag, String version) {
+        this(value, ageMillis, json, encodedJson, etag, version, false);
+    }
+
+    public CachedValue(T value, long ageMillis, byte[] json) {
+        this(value, ageMillis, json, Collections.emptyMap(), null, null);
+    }
+
+    public CachedValue<T> asStale() {
+        return new CachedValue<>(value, ageMillis, json, encodedJson, etag, version, true);
+    }
+}
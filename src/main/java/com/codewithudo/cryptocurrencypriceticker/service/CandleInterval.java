@@ -0,0 +1,42 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import java.time.Duration;
+
+public enum CandleInterval {
+    ONE_MINUTE("1m", Duration.ofMinutes(1)),
+    FIVE_MINUTES("5m", Duration.ofMinutes(5)),
+    ONE_HOUR("1h", Duration.ofHours(1)),
+    ONE_DAY("1d", Duration.ofDays(1));
+
+    private final String label;
+    private final long millis;
+
+    CandleInterval(String label, Duration length) {
+        this.label = label;
+        this.millis = length.toMillis();
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Start of the bar {@code timestamp} (epoch millis) falls in; bars are aligned to the epoch, so
+     * daily bars run midnight to midnight UTC.
+     */
+    long barStart(long timestamp) {
+        return Math.floorDiv(timestamp, millis) * millis;
+    }
+
+    /**
+     * The interval labelled {@code label} ("1m", "5m", "1h" or "1d"), or {@code null}.
+     */
+    public static CandleInterval of(String label) {
+        for (CandleInterval interval : values()) {
+            if (interval.label.equals(label)) {
+                return interval;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,133 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.dto.Candle;
+import com.codewithudo.cryptocurrencypriceticker.dto.FixedPoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The last {@code capacity} bars of one market at one interval, in parallel primitive arrays like
+ * {@link TickHistory}. Each tick updates the current bar, or starts the next one, in O(1).
+ */
+class CandleSeries {
+
+    private final CandleInterval interval;
+    // Guarded by this
+    private final long[] starts;
+    private final long[] opens;
+    private final long[] highs;
+    private final long[] lows;
+    private final long[] closes;
+    private final long[] volumes;
+    private final byte[] scales;
+    private final byte[] volumeScales;
+    private int next;
+    private int size;
+
+    CandleSeries(CandleInterval interval, int capacity) {
+        this.interval = interval;
+        starts = new long[capacity];
+        opens = new long[capacity];
+        highs = new long[capacity];
+        lows = new long[capacity];
+        closes = new long[capacity];
+        volumes = new long[capacity];
+        scales = new byte[capacity];
+        volumeScales = new byte[capacity];
+    }
+
+    /**
+     * Adds a trade at {@code price} (at {@code scale}) and {@code volume} traded since the last tick
+     * (at {@code volumeScale}). Ticks are expected in time order; one from before the current bar is ignored.
+     */
+    synchronized void record(long timestamp, long price, int scale, long volume, int volumeScale) {
+        long start = interval.barStart(timestamp);
+        int current = index(size - 1);
+        if (size == 0 || start > starts[current]) {
+            int slot = next;
+            starts[slot] = start;
+            opens[slot] = price;
+            highs[slot] = price;
+            lows[slot] = price;
+            closes[slot] = price;
+            volumes[slot] = volume;
+            scales[slot] = (byte) scale;
+            volumeScales[slot] = (byte) volumeScale;
+            next = (next + 1) % starts.length;
+            size = Math.min(size + 1, starts.length);
+            return;
+        }
+        if (start < starts[current]) {
+            return;
+        }
+
+        // Keep the bar at the finer of the two scales so nothing is truncated, unless that doesn't fit a long
+        int barScale = scales[current];
+        if (scale > barScale) {
+            try {
+                long open = FixedPoint.rescale(opens[current], barScale, scale);
+                long high = FixedPoint.rescale(highs[current], barScale, scale);
+                long low = FixedPoint.rescale(lows[current], barScale, scale);
+                long close = FixedPoint.rescale(closes[current], barScale, scale);
+                opens[current] = open;
+                highs[current] = high;
+                lows[current] = low;
+                closes[current] = close;
+                scales[current] = (byte) scale;
+            } catch (ArithmeticException e) {
+                price = FixedPoint.rescale(price, scale, barScale);
+            }
+        } else if (scale < barScale) {
+            price = FixedPoint.rescale(price, scale, barScale);
+        }
+        highs[current] = Math.max(highs[current], price);
+        lows[current] = Math.min(lows[current], price);
+        closes[current] = price;
+
+        // Same for the volume, unless the finer scale doesn't fit a long
+        int barVolumeScale = volumeScales[current];
+        if (volumeScale != barVolumeScale) {
+            long barVolume = volumes[current];
+            int common = Math.max(volumeScale, barVolumeScale);
+            try {
+                barVolume = FixedPoint.rescale(barVolume, barVolumeScale, common);
+                volume = FixedPoint.rescale(volume, volumeScale, common);
+            } catch (ArithmeticException e) {
+                common = Math.min(volumeScale, barVolumeScale);
+                barVolume = FixedPoint.rescale(volumes[current], barVolumeScale, common);
+                volume = FixedPoint.rescale(volume, volumeScale, common);
+            }
+            volumes[current] = barVolume;
+            volumeScales[current] = (byte) common;
+        }
+        volumes[current] += volume;
+    }
+
+    /**
+     * Bars opening between {@code from} and {@code to} (epoch millis, inclusive), oldest first.
+     */
+    synchronized List<Candle> between(long from, long to) {
+        List<Candle> candles = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int slot = index(i);
+            if (starts[slot] < from) {
+                continue;
+            }
+            if (starts[slot] > to) {
+                break;
+            }
+            int scale = scales[slot];
+            candles.add(new Candle(starts[slot] / 1000, FixedPoint.format(opens[slot], scale),
+                    FixedPoint.format(highs[slot], scale), FixedPoint.format(lows[slot], scale),
+                    FixedPoint.format(closes[slot], scale), FixedPoint.format(volumes[slot], volumeScales[slot])));
+        }
+        return candles;
+    }
+
+    // Slot of the i-th oldest bar
+    private int index(int i) {
+        int oldest = size < starts.length ? 0 : next;
+        return Math.floorMod(oldest + i, starts.length);
+    }
+}
@@ -0,0 +1,82 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.config.QuidaxProperties;
+import com.codewithudo.cryptocurrencypriceticker.dto.Candle;
+import com.codewithudo.cryptocurrencypriceticker.dto.FixedPoint;
+import com.codewithudo.cryptocurrencypriceticker.dto.NumericTicker;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * OHLCV bars per market at every {@link CandleInterval}, built up tick by tick from what
+ * {@link TickHistoryService} records.
+ * <p>
+ * Prices are the ticker's last price. Exchanges only report a rolling 24h volume, so a bar's
+ * volume is how much that figure rose during the bar: trades rolling out of the 24h window can
+ * hide ones coming in, making it a lower bound.
+ */
+@Service
+public class CandleService {
+
+    private final int capacity;
+    private final ConcurrentMap<String, MarketCandles> markets = new ConcurrentHashMap<>();
+
+    public CandleService(QuidaxProperties properties) {
+        this.capacity = properties.getCandles().getCapacity();
+    }
+
+    /**
+     * Adds a tick taken at {@code timestamp} (epoch millis). Ticks must arrive in time order per market.
+     */
+    public void record(String market, long timestamp, NumericTicker ticker) {
+        markets.computeIfAbsent(market, m -> new MarketCandles()).record(timestamp, ticker);
+    }
+
+    /**
+     * Bars for {@code market} opening between {@code from} and {@code to} (epoch seconds, inclusive,
+     * either may be null), oldest first.
+     */
+    public List<Candle> getCandles(String market, CandleInterval interval, Long from, Long to) {
+        MarketCandles candles = markets.get(market);
+        if (candles == null) {
+            return Collections.emptyList();
+        }
+        return candles.series[interval.ordinal()].between(from != null ? from * 1000 : Long.MIN_VALUE,
+                to != null ? to * 1000 : Long.MAX_VALUE);
+    }
+
+    private class MarketCandles {
+        private final CandleSeries[] series = new CandleSeries[CandleInterval.values().length];
+        // Guarded by this
+        private long lastVolume = -1;
+        private int lastVolumeScale;
+
+        MarketCandles() {
+            for (CandleInterval interval : CandleInterval.values()) {
+                series[interval.ordinal()] = new CandleSeries(interval, capacity);
+            }
+        }
+
+        synchronized void record(long timestamp, NumericTicker ticker) {
+            int volumeScale = ticker.getVolumeScale();
+            long traded = 0;
+            if (lastVolume >= 0) {
+                try {
+                    traded = Math.max(0, ticker.getVolume() - FixedPoint.rescale(lastVolume, lastVolumeScale, volumeScale));
+                } catch (ArithmeticException e) {
+                    // The old total doesn't fit at the new, finer scale, so it was far bigger than this one:
+                    // the 24h window rolled over. Count from this tick, same as any other drop.
+                }
+            }
+            lastVolume = ticker.getVolume();
+            lastVolumeScale = volumeScale;
+            for (CandleSeries bars : series) {
+                bars.record(timestamp, ticker.getPrice(), ticker.getScale(), traded, volumeScale);
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Stops calling Quidax once it keeps failing. After {@code failureThreshold} failures in a row the
+ * circuit opens and calls fail straight away with {@link CircuitOpenException}, so callers fall back
+ * to what they have cached instead of queueing up on a dead upstream. Once {@code openDuration} has
+ * passed, up to {@code halfOpenProbes} calls are let through: a probe's success closes the circuit
+ * again, its failure re-opens it. Calls still in flight from before the circuit opened don't count
+ * once it has.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    // What tryAcquire hands out: turned away, an ordinary call, or a probe of the current half-open round
+    private static final long REJECTED = -1;
+    private static final long NOT_A_PROBE = 0;
+
+    private final String name;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final int halfOpenProbes;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private int probesInFlight;
+    // Bumped each time probes are let through, so a probe from an earlier round can't settle this one
+    private long probeRound;
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration, int halfOpenProbes) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    /**
+     * Runs {@code call} if the circuit allows it. Exceptions that mean Quidax isn't working, and
+     * results matching {@code failedResult}, count as failures.
+     */
+    public <T> T execute(Supplier<T> call, Predicate<? super T> failedResult) {
+        long permit = tryAcquire();
+        if (permit == REJECTED) {
+            throw new CircuitOpenException(name, retryAfter());
+        }
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            recordError(permit, e);
+            throw e;
+        }
+        record(permit, result != null && failedResult.test(result));
+        return result;
+    }
+
+    public <T> Mono<T> execute(Mono<T> call, Predicate<? super T> failedResult) {
+        return Mono.defer(() -> {
+            long permit = tryAcquire();
+            if (permit == REJECTED) {
+                return Mono.error(new CircuitOpenException(name, retryAfter()));
+            }
+            return call
+                    .doOnSuccess(result -> record(permit, result != null && failedResult.test(result)))
+                    .doOnError(e -> recordError(permit, e));
+        });
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * How long until the circuit lets a probe through, zero unless it's open.
+     */
+    public synchronized Duration retryAfter() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        long remaining = openedAt + openDuration.toMillis() - System.currentTimeMillis();
+        return Duration.ofMillis(Math.max(0, remaining));
+    }
+
+    private synchronized long tryAcquire() {
+        long now = System.currentTimeMillis();
+        switch (state) {
+            case CLOSED:
+                return NOT_A_PROBE;
+            case OPEN:
+                if (now - openedAt < openDuration.toMillis()) {
+                    return REJECTED;
+                }
+                state = State.HALF_OPEN;
+                openedAt = now;
+                probesInFlight = 0;
+                probeRound++;
+                break;
+            case HALF_OPEN:
+                // A probe whose outcome never got recorded (e.g. cancelled) mustn't wedge the circuit
+                if (probesInFlight >= halfOpenProbes && now - openedAt >= openDuration.toMillis()) {
+                    openedAt = now;
+                    probesInFlight = 0;
+                    probeRound++;
+                }
+                break;
+        }
+        if (probesInFlight >= halfOpenProbes) {
+            return REJECTED;
+        }
+        probesInFlight++;
+        return probeRound;
+    }
+
+    private void recordError(long permit, Throwable e) {
+        if (e instanceof RateLimitedException) {
+            release(permit);
+        } else {
+            record(permit, isFailure(e));
+        }
+    }
+
+    // Our own rate limiter turned the call away before it reached upstream, so it says nothing either
+    // way: the state and failure count stay as they are, and a probe just gives its slot back
+    private synchronized void release(long permit) {
+        if (state == State.HALF_OPEN && permit == probeRound && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    private synchronized void record(long permit, boolean failed) {
+        // While half open only this round's probes decide; a late answer to a call let through before
+        // the circuit opened (or to an abandoned probe) says nothing about whether upstream is back
+        if (state == State.HALF_OPEN && permit != probeRound) {
+            return;
+        }
+        if (!failed) {
+            if (state == State.HALF_OPEN) {
+                log.info("Circuit {} closed, upstream is answering again", name);
+                state = State.CLOSED;
+            }
+            if (state == State.CLOSED) {
+                consecutiveFailures = 0;
+            }
+            return;
+        }
+
+        if (state == State.HALF_OPEN || (state == State.CLOSED && ++consecutiveFailures >= failureThreshold)) {
+            log.warn("Circuit {} opened, failing fast for {}", name, openDuration);
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            consecutiveFailures = 0;
+        }
+    }
+
+    // Quidax answering with a 4xx (an unknown market, say) is Quidax working. Errors, timeouts,
+    // 5xx and 429 are what count against it; our own rate limiter turning a call away is not.
+    static boolean isFailure(Throwable e) {
+        if (e instanceof RateLimitedException) {
+            return false;
+        }
+        HttpStatusCode status = null;
+        if (e instanceof RestClientResponseException responseException) {
+            status = responseException.getStatusCode();
+        } else if (e instanceof WebClientResponseException responseException) {
+            status = responseException.getStatusCode();
+        }
+        return status == null || status.is5xxServerError() || status.value() == HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+}
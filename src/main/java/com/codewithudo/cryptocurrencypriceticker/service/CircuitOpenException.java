@@ -0,0 +1,22 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import lombok.Getter;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+
+/**
+ * Thrown instead of calling Quidax while its circuit breaker is open. It's a
+ * {@link RestClientException} so everything that already falls back to cached data on upstream
+ * errors does the same here.
+ */
+@Getter
+public class CircuitOpenException extends RestClientException {
+
+    private final Duration retryAfter;
+
+    public CircuitOpenException(String name, Duration retryAfter) {
+        super("Circuit " + name + " is open");
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,109 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Delivers per-market updates to one streaming subscriber, one batch at a time. While a batch
+ * is being written, newer updates are merged by market, so a subscriber that falls behind gets
+ * only the latest value for each market once it catches up. Nothing queues up beyond one entry
+ * per market, however slow the subscriber is. Updates older than ones already published are
+ * dropped, so a late one can never overwrite newer values.
+ */
+public class ConflatingPublisher<V> {
+
+    @FunctionalInterface
+    public interface Sink<V> {
+        void send(long version, Map<String, V> updates) throws IOException;
+    }
+
+    private final Executor executor;
+    private final Sink<V> sink;
+    private final Consumer<Exception> onFailure;
+
+    // Guarded by this
+    private Map<String, V> pending = new LinkedHashMap<>();
+    // Newest version published, pending or already sent; never goes backwards
+    private long pendingVersion;
+    private boolean draining;
+    private boolean closed;
+
+    // When the batch being written started, 0 while idle
+    private volatile long sendStartedAt;
+
+    public ConflatingPublisher(Executor executor, Sink<V> sink, Consumer<Exception> onFailure) {
+        this.executor = executor;
+        this.sink = sink;
+        this.onFailure = onFailure;
+    }
+
+    public void publish(long version, Map<String, V> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            if (closed || version < pendingVersion) {
+                return;
+            }
+            pending.putAll(updates);
+            pendingVersion = version;
+            if (draining) {
+                // The running drain picks these up when its current write finishes
+                return;
+            }
+            draining = true;
+        }
+        executor.execute(this::drain);
+    }
+
+    /**
+     * True while a single batch has been in flight for longer than {@code limit}.
+     */
+    public boolean isStalled(Duration limit) {
+        long startedAt = sendStartedAt;
+        return startedAt != 0 && System.currentTimeMillis() - startedAt > limit.toMillis();
+    }
+
+    public synchronized boolean isIdle() {
+        return !draining;
+    }
+
+    public synchronized void close() {
+        closed = true;
+        pending.clear();
+    }
+
+    private void drain() {
+        while (true) {
+            Map<String, V> batch;
+            long version;
+            synchronized (this) {
+                if (pending.isEmpty() || closed) {
+                    draining = false;
+                    return;
+                }
+                batch = pending;
+                version = pendingVersion;
+                pending = new LinkedHashMap<>();
+            }
+
+            sendStartedAt = System.currentTimeMillis();
+            try {
+                sink.send(version, batch);
+            } catch (IOException | RuntimeException e) {
+                close();
+                synchronized (this) {
+                    draining = false;
+                }
+                onFailure.accept(e);
+                return;
+            } finally {
+                sendStartedAt = 0;
+            }
+        }
+    }
+}
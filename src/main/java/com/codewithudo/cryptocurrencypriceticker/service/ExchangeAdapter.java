@@ -0,0 +1,46 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.dto.MarketData;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A venue we get tickers from. Implementations fetch in their exchange's own format and hand back
+ * {@link MarketData} keyed by the exchange's market names; {@link ExchangeRegistry} takes care of
+ * polling every adapter and combining them into the one ticker store.
+ */
+public interface ExchangeAdapter {
+
+    /**
+     * Short, unique name, also used to prefix this exchange's markets (e.g. {@code "luno:xbtngn"}).
+     */
+    String getName();
+
+    /**
+     * Every market's ticker in one call. Empty if the exchange answered without any.
+     */
+    Map<String, MarketData> getMarkets();
+
+    /**
+     * One market's ticker, or {@code null} if the exchange doesn't know it.
+     */
+    MarketData getMarket(String market);
+
+    /**
+     * Several markets fetched individually, leaving out any that fail. Markets the exchange says it
+     * doesn't have map to {@code null}. Exchanges that can fetch them in parallel should.
+     */
+    default Map<String, MarketData> getMarkets(Collection<String> markets) {
+        Map<String, MarketData> fetched = new LinkedHashMap<>();
+        for (String market : markets) {
+            try {
+                fetched.put(market, getMarket(market));
+            } catch (RuntimeException e) {
+                // left out, same as a market that didn't answer
+            }
+        }
+        return fetched;
+    }
+}
@@ -0,0 +1,242 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.dto.MarketData;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Every configured {@link ExchangeAdapter}, combined into one market namespace. The primary
+ * exchange's markets keep their own names ({@code btcngn}); every other exchange's are prefixed
+ * with its name ({@code luno:xbtngn}), so they can share the ticker store and the endpoints
+ * without colliding. An exchange whose polls keep failing keeps its last markets only until they
+ * pass their hard TTL; after that they're left out rather than passed off as current.
+ */
+@Slf4j
+public class ExchangeRegistry {
+
+    private static final char SEPARATOR = ':';
+
+    private final ExchangeAdapter primary;
+    private final Map<String, ExchangeAdapter> adapters = new LinkedHashMap<>();
+    // How long a market is kept after its exchange last answered (the market's hard TTL)
+    private final Function<String, Duration> maxAge;
+    // Each exchange's latest markets (already prefixed), so one failing poll doesn't drop them
+    private final ConcurrentMap<String, Polled> latest = new ConcurrentHashMap<>();
+    // Exchanges are polled in parallel, each blocking on its own virtual thread
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private record Polled(Map<String, MarketData> markets, long fetchedAt) {
+    }
+
+    public ExchangeRegistry(String primary, List<? extends ExchangeAdapter> adapters, Function<String, Duration> maxAge) {
+        this.maxAge = maxAge;
+        for (ExchangeAdapter adapter : adapters) {
+            if (this.adapters.putIfAbsent(adapter.getName(), adapter) != null) {
+                throw new IllegalArgumentException("Two exchanges named " + adapter.getName());
+            }
+        }
+        this.primary = this.adapters.get(primary);
+        if (this.primary == null) {
+            throw new IllegalArgumentException("No exchange named " + primary);
+        }
+    }
+
+    public Collection<ExchangeAdapter> getAdapters() {
+        return Collections.unmodifiableCollection(adapters.values());
+    }
+
+    /**
+     * Polls every exchange, all at once, and returns every exchange's markets. Exchanges whose poll
+     * fails keep their previous markets (until those pass their hard TTL); only if none of them
+     * answered is the failure thrown (or, if they answered without tickers, an empty map returned).
+     */
+    public Map<String, MarketData> getMarkets() {
+        Map<ExchangeAdapter, Future<Map<String, MarketData>>> polls = new LinkedHashMap<>();
+        for (ExchangeAdapter adapter : adapters.values()) {
+            polls.put(adapter, executor.submit(() -> adapter.getMarkets()));
+        }
+
+        boolean updated = false;
+        RestClientException failure = null;
+        for (Map.Entry<ExchangeAdapter, Future<Map<String, MarketData>>> poll : polls.entrySet()) {
+            String name = poll.getKey().getName();
+            try {
+                Map<String, MarketData> markets = poll.getValue().get();
+                if (!markets.isEmpty()) {
+                    latest.put(name, new Polled(qualify(poll.getKey(), markets), System.currentTimeMillis()));
+                    updated = true;
+                }
+            } catch (ExecutionException e) {
+                // One broken adapter mustn't stop the others' tickers from being published
+                RestClientException restClientException;
+                if (e.getCause() instanceof RestClientException cause) {
+                    log.warn("Failed to poll {}, keeping its last tickers: {}", name, cause.getMessage());
+                    restClientException = cause;
+                } else {
+                    log.error("Failed to poll {}, keeping its last tickers", name, e.getCause());
+                    restClientException = new RestClientException("Polling " + name + " failed", e.getCause());
+                }
+                if (failure == null) {
+                    failure = restClientException;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                polls.values().forEach(future -> future.cancel(true));
+                throw new ResourceAccessException("Interrupted polling exchanges");
+            }
+        }
+        if (!updated) {
+            if (failure != null) {
+                throw failure;
+            }
+            return Collections.emptyMap();
+        }
+        return combined();
+    }
+
+    /**
+     * Records {@code markets} as {@code exchange}'s latest (fetched some other way, e.g. without
+     * blocking) and returns every exchange's markets, or an empty map if {@code markets} is empty.
+     */
+    public Map<String, MarketData> update(String exchange, Map<String, MarketData> markets) {
+        if (markets.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        latest.put(exchange, new Polled(qualify(adapters.get(exchange), markets), System.currentTimeMillis()));
+        return combined();
+    }
+
+    /**
+     * One market by its combined name, from whichever exchange it belongs to.
+     */
+    public MarketData getMarket(String market) {
+        ExchangeAdapter adapter = adapterFor(market);
+        return adapter.getMarket(localName(adapter, market));
+    }
+
+    /**
+     * Several markets by their combined names, fetched individually. Each exchange fetches its own
+     * markets (in parallel with the others) and leaves out any that fail or run out of time; markets
+     * an exchange says it doesn't have map to {@code null}.
+     */
+    public Map<String, MarketData> getMarkets(Collection<String> markets) {
+        Map<ExchangeAdapter, List<String>> byExchange = new LinkedHashMap<>();
+        for (String market : markets) {
+            ExchangeAdapter adapter = adapterFor(market);
+            byExchange.computeIfAbsent(adapter, a -> new ArrayList<>()).add(localName(adapter, market));
+        }
+        if (byExchange.size() == 1) {
+            Map.Entry<ExchangeAdapter, List<String>> only = byExchange.entrySet().iterator().next();
+            return qualify(only.getKey(), only.getKey().getMarkets(only.getValue()));
+        }
+
+        Map<ExchangeAdapter, Future<Map<String, MarketData>>> fetches = new LinkedHashMap<>();
+        byExchange.forEach((adapter, local) -> fetches.put(adapter, executor.submit(() -> adapter.getMarkets(local))));
+        Map<String, MarketData> fetched = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<ExchangeAdapter, Future<Map<String, MarketData>>> fetch : fetches.entrySet()) {
+                try {
+                    fetched.putAll(qualify(fetch.getKey(), fetch.getValue().get()));
+                } catch (ExecutionException e) {
+                    log.debug("Failed to fetch markets from {}: {}", fetch.getKey().getName(), e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            fetches.values().forEach(fetch -> fetch.cancel(true));
+        }
+        return fetched;
+    }
+
+    /**
+     * The exchange a combined market name belongs to.
+     */
+    public String exchangeOf(String market) {
+        return adapterFor(market).getName();
+    }
+
+    /**
+     * The exchange's own name for a combined market name, e.g. {@code xbtngn} for {@code luno:xbtngn}.
+     */
+    public String localNameOf(String market) {
+        return localName(adapterFor(market), market);
+    }
+
+    /**
+     * The combined name of {@code exchange}'s {@code market}.
+     */
+    public String combinedName(String exchange, String market) {
+        return exchange.equals(primary.getName()) ? market : exchange + SEPARATOR + market;
+    }
+
+    private Map<String, MarketData> combined() {
+        long now = System.currentTimeMillis();
+        Map<String, MarketData> combined = new LinkedHashMap<>();
+        for (String name : adapters.keySet()) {
+            Polled polled = latest.get(name);
+            if (polled == null) {
+                continue;
+            }
+            long age = now - polled.fetchedAt();
+            polled.markets().forEach((market, marketData) -> {
+                if (age <= maxAge.apply(market).toMillis()) {
+                    combined.put(market, marketData);
+                }
+            });
+        }
+        return combined;
+    }
+
+    private ExchangeAdapter adapterFor(String market) {
+        int separator = market.indexOf(SEPARATOR);
+        if (separator > 0) {
+            ExchangeAdapter adapter = adapters.get(market.substring(0, separator));
+            if (adapter != null && adapter != primary) {
+                return adapter;
+            }
+        }
+        return primary;
+    }
+
+    private String localName(ExchangeAdapter adapter, String market) {
+        return adapter == primary ? market : market.substring(adapter.getName().length() + 1);
+    }
+
+    private Map<String, MarketData> qualify(ExchangeAdapter adapter, Map<String, MarketData> markets) {
+        if (adapter == primary) {
+            return markets;
+        }
+        Map<String, MarketData> qualified = new LinkedHashMap<>(markets.size() * 2);
+        markets.forEach((market, marketData) -> qualified.put(adapter.getName() + SEPARATOR + market, marketData));
+        return qualified;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        // Venues built from configuration aren't beans, so nothing else shuts them down
+        adapters.values().forEach(adapter -> {
+            if (adapter != primary && adapter instanceof QuidaxService quidaxService) {
+                quidaxService.shutdownWithRetry();
+            }
+        });
+    }
+}
@@ -0,0 +1,40 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of the last few hundred calls to one endpoint, for working out percentiles.
+ */
+class LatencyTracker {
+
+    private static final int WINDOW = 512;
+    // Fewer samples than this and a percentile doesn't mean much yet
+    private static final int MIN_SAMPLES = 20;
+
+    // Guarded by this
+    private final long[] samples = new long[WINDOW];
+    private int count;
+    private int next;
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % WINDOW;
+        count = Math.min(count + 1, WINDOW);
+    }
+
+    /**
+     * The {@code percentile} (0..1) latency in nanoseconds, or -1 until there are enough samples.
+     */
+    long percentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            if (count < MIN_SAMPLES) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -1,97 +1,210 @@
 package com.codewithudo.cryptocurrencypriceticker.service;
 
+import com.codewithudo.cryptocurrencypriceticker.config.QuidaxProperties;
 import com.codewithudo.cryptocurrencypriceticker.dto.MarketData;
-import com.codewithudo.cryptocurrencypriceticker.dto.QuidaxResponse;
 import com.codewithudo.cryptocurrencypriceticker.dto.SingleTickerResponse;
 import com.codewithudo.cryptocurrencypriceticker.dto.Ticker;
-import org.springframework.core.ParameterizedTypeReference;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The Quidax {@link ExchangeAdapter}, and the primary exchange. Other venues that speak the same API
+ * ({@code quidax.venues.*}) get an instance of their own.
+ */
+@Slf4j
 @Service
-public class QuidaxService {
+public class QuidaxService implements ExchangeAdapter {
 
-    private static final String QUIDAX_API_BASE_URL = "https://app.quidax.io";
+    public static final String NAME = "quidax";
+    private static final String ALL_TICKERS_KEY = "*";
+    private final String name;
     private final RestTemplate restTemplate;
+    private final String baseUrl;
+    private final QuidaxTickerParser tickerParser;
+    private final CircuitBreaker circuitBreaker;
+    private final UpstreamRetry retry;
+    private final UpstreamRetry.Endpoint tickersEndpoint;
+    private final UpstreamRetry.Endpoint tickerEndpoint;
+    private final int fanOutParallelism;
+    private final Duration fanOutTimeout;
+    // Each fetch in a fan-out blocks on its own virtual thread
+    private final ExecutorService fanOutExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Concurrent callers for the same endpoint share one outstanding upstream request
+    private final SingleFlight<String, Map<String, MarketData>> marketsInFlight = new SingleFlight<>();
+    private final SingleFlight<String, MarketData> marketInFlight = new SingleFlight<>();
+
+    @Autowired
+    public QuidaxService(RestTemplate quidaxRestTemplate, QuidaxProperties properties,
+                         QuidaxTickerParser tickerParser, CircuitBreaker quidaxCircuitBreaker,
+                         UpstreamRetry quidaxRetry) {
+        this(NAME, properties.getBaseUrl(), quidaxRestTemplate, properties.getHttp(), tickerParser,
+                quidaxCircuitBreaker, quidaxRetry);
+    }
+
+    public QuidaxService(String name, String baseUrl, RestTemplate restTemplate, QuidaxProperties.Http http,
+                         QuidaxTickerParser tickerParser, CircuitBreaker circuitBreaker, UpstreamRetry retry) {
+        this.name = name;
+        this.restTemplate = restTemplate;
+        this.baseUrl = baseUrl;
+        this.tickerParser = tickerParser;
+        this.circuitBreaker = circuitBreaker;
+        this.retry = retry;
+        this.tickersEndpoint = retry.endpoint(name + " GET /markets/tickers");
+        this.tickerEndpoint = retry.endpoint(name + " GET /markets/tickers/{market}");
+        this.fanOutParallelism = http.getFanOutParallelism();
+        this.fanOutTimeout = http.getFanOutTimeout();
+    }
 
-    public QuidaxService() {
-        this.restTemplate = new RestTemplate();
+    @Override
+    public String getName() {
+        return name;
     }
 
     public Map<String, Ticker> getTickers() {
-        String url = QUIDAX_API_BASE_URL + "/api/v1/markets/tickers";
+        return getStringTickerMap(getMarkets());
+    }
+
+    public Ticker getTicker(String market) {
+        MarketData marketData = getMarket(market);
+        return marketData != null ? marketData.getTicker() : null;
+    }
 
-        // 1. Tell RestTemplate to expect the full QuidaxResponse object
-        ResponseEntity<QuidaxResponse> response = restTemplate.exchange(
+    /**
+     * Same as {@link #getTickers()} but keeps the {@code at} timestamp Quidax sent with each ticker.
+     */
+    @Override
+    public Map<String, MarketData> getMarkets() {
+        // A bulk response without any tickers (a non-"success" status) is as good as an error.
+        // Retries happen inside the breaker, so a call only counts against it once they're used up.
+        return marketsInFlight.execute(ALL_TICKERS_KEY,
+                () -> circuitBreaker.execute(() -> retry.execute(tickersEndpoint, this::fetchMarkets), Map::isEmpty));
+    }
+
+    @Override
+    public MarketData getMarket(String market) {
+        // Here an empty answer may just be a market Quidax doesn't have
+        return marketInFlight.execute(market,
+                () -> circuitBreaker.execute(() -> retry.execute(tickerEndpoint, () -> fetchMarket(market)),
+                        marketData -> false));
+    }
+
+    /**
+     * Fetches each of {@code markets} on its own, {@code quidax.http.fan-out-parallelism} at a time,
+     * for markets the bulk payload doesn't have (or when it's unavailable). The whole batch shares one
+     * deadline: markets that haven't arrived by then, or whose fetch failed, are missing from the
+     * result rather than failing the batch. Markets Quidax doesn't have map to {@code null}.
+     */
+    @Override
+    public Map<String, MarketData> getMarkets(Collection<String> markets) {
+        long deadline = System.nanoTime() + fanOutTimeout.toNanos();
+        Semaphore permits = new Semaphore(fanOutParallelism);
+        Map<String, Future<MarketData>> fetches = new LinkedHashMap<>();
+        for (String market : markets) {
+            fetches.put(market, fanOutExecutor.submit(() -> {
+                permits.acquire();
+                try {
+                    return getMarket(market);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        Map<String, MarketData> fetched = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<MarketData>> fetch : fetches.entrySet()) {
+            try {
+                fetched.put(fetch.getKey(), fetch.getValue().get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                log.debug("Gave up on {} after {}", fetch.getKey(), fanOutTimeout);
+            } catch (ExecutionException e) {
+                log.debug("Failed to fetch {}: {}", fetch.getKey(), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        // Interrupts whatever is still queued or in flight; HttpClient.send gives up on interrupt
+        fetches.values().forEach(fetch -> fetch.cancel(true));
+        return fetched;
+    }
+
+    private Map<String, MarketData> fetchMarkets() {
+        String url = baseUrl + "/api/v1/markets/tickers";
+
+        // Parse the body as it streams in instead of binding the whole envelope first
+        Map<String, MarketData> markets = restTemplate.execute(
                 url,
                 HttpMethod.GET,
                 null,
-                new ParameterizedTypeReference<>() {}
+                response -> tickerParser.readMarkets(response.getBody())
         );
 
-        QuidaxResponse body = response.getBody();
-
-        Map<String, Ticker> unwrappedTickers = getStringTickerMap(body);
-
-        return unwrappedTickers;
+        return markets != null ? markets : Collections.emptyMap();
     }
 
-    private static Map<String, Ticker> getStringTickerMap(QuidaxResponse body) {
+    static Map<String, Ticker> getStringTickerMap(Map<String, MarketData> markets) {
         Map<String, Ticker> unwrappedTickers = new LinkedHashMap<>(); // Use LinkedHashMap to preserve order
 
-        if (body != null && "success".equals(body.getStatus())) {
-            // This is the new "unwrapping" logic
-            for (Map.Entry<String, MarketData> entry : body.getData().entrySet()) {
-                String marketName = entry.getKey();
-                Ticker ticker = entry.getValue().getTicker(); // Get the innermost Ticker object
-                if (ticker != null) {
-                    unwrappedTickers.put(marketName, ticker);
-                }
+        // This is the new "unwrapping" logic
+        for (Map.Entry<String, MarketData> entry : markets.entrySet()) {
+            String marketName = entry.getKey();
+            Ticker ticker = entry.getValue().getTicker(); // Get the innermost Ticker object
+            if (ticker != null) {
+                unwrappedTickers.put(marketName, ticker);
             }
         }
         return unwrappedTickers;
     }
 
-    public Ticker getTicker(String market) {
-        String url = QUIDAX_API_BASE_URL + "/api/v1/markets/tickers/" + market;
-//        ResponseEntity<QuidaxResponse> response = restTemplate.exchange(
-//                url,
-//                HttpMethod.GET,
-//                null,
-//                new ParameterizedTypeReference<>() {}
-//        );
-//
-//        QuidaxResponse body = response.getBody();
-//
-//        Map<String, Ticker> unwrappedTickers = getStringTickerMap(body);
-//
-//        for (Map.Entry<String, Ticker> entry : unwrappedTickers.entrySet()) {
-//            Ticker ticker = entry.getValue();
-//            if (ticker != null) {
-//                return ticker;
-//            }
-//        }
-//        return null;
-
-
-        //Cleaner Code, More Efficient
+    private MarketData fetchMarket(String market) {
+        String url = baseUrl + "/api/v1/markets/tickers/" + market;
+
         // 1. Tell RestTemplate to expect our new SingleTickerResponse object
-        SingleTickerResponse response = restTemplate.getForObject(url, SingleTickerResponse.class);
+        SingleTickerResponse response;
+        try {
+            response = restTemplate.getForObject(url, SingleTickerResponse.class);
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        }
 
-        // 2. Unwrap the nested data to get the final Ticker object
+        // 2. Unwrap the envelope to get the MarketData (ticker plus its timestamp)
         if (response != null && "success".equals(response.getStatus())) {
             MarketData marketData = response.getData();
-            if (marketData != null) {
-                return marketData.getTicker();
+            if (marketData != null && marketData.getTicker() != null) {
+                return marketData;
             }
         }
 
         return null;
     }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOutExecutor.shutdownNow();
+    }
+
+    // For venues built from configuration, which own their retry (the bean's retry is a bean itself)
+    void shutdownWithRetry() {
+        shutdown();
+        retry.shutdown();
+    }
 }
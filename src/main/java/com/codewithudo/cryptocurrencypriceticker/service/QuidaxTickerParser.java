@@ -0,0 +1,93 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.dto.MarketData;
+import com.codewithudo.cryptocurrencypriceticker.dto.Ticker;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the bulk {@code /tickers} payload token by token straight off the response stream:
+ * <pre>
+ * { "status": "success", "data": { "btcngn": { "at": 1700000000, "ticker": { ... } }, ... } }
+ * </pre>
+ * Only the {@link Ticker} leaves go through data binding. The envelope is never materialised,
+ * so there is no envelope object and no intermediate map to copy out of.
+ */
+@Component
+public class QuidaxTickerParser {
+
+    private final ObjectMapper objectMapper;
+    // Quidax adds fields to its tickers that we don't model (open, at, ...)
+    private final ObjectReader tickerReader;
+
+    public QuidaxTickerParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.tickerReader = objectMapper.readerFor(Ticker.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    public Map<String, MarketData> readMarkets(InputStream body) throws IOException {
+        Map<String, MarketData> markets = new LinkedHashMap<>(); // Use LinkedHashMap to preserve order
+        String status = null;
+
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return Collections.emptyMap();
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("status".equals(field)) {
+                    status = parser.getValueAsString();
+                } else if ("data".equals(field) && value == JsonToken.START_OBJECT) {
+                    readData(parser, markets);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        // Status may come after data, so we can only discard a failed response once we've seen it all
+        return "success".equals(status) ? Collections.unmodifiableMap(markets) : Collections.emptyMap();
+    }
+
+    private void readData(JsonParser parser, Map<String, MarketData> markets) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String market = parser.currentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            MarketData marketData = readMarket(parser);
+            if (marketData.getTicker() != null) {
+                markets.put(market, marketData);
+            }
+        }
+    }
+
+    private MarketData readMarket(JsonParser parser) throws IOException {
+        MarketData marketData = new MarketData();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("at".equals(field)) {
+                marketData.setAt(parser.getValueAsLong());
+            } else if ("ticker".equals(field) && value == JsonToken.START_OBJECT) {
+                marketData.setTicker(tickerReader.readValue(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return marketData;
+    }
+}
@@ -0,0 +1,22 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import lombok.Getter;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+
+/**
+ * Thrown instead of calling Quidax when our own rate limiter can't fit the call in within its
+ * maximum wait. Like {@link CircuitOpenException}, callers treat it as an upstream error and fall
+ * back to cached data.
+ */
+@Getter
+public class RateLimitedException extends RestClientException {
+
+    private final Duration retryAfter;
+
+    public RateLimitedException(String name, Duration retryAfter) {
+        super("Rate limit for " + name + " exceeded");
+        this.retryAfter = retryAfter;
+    }
+}
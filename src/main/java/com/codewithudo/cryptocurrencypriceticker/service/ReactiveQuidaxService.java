@@ -0,0 +1,118 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.config.QuidaxProperties;
+import com.codewithudo.cryptocurrencypriceticker.dto.MarketData;
+import com.codewithudo.cryptocurrencypriceticker.dto.SingleTickerResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of {@link QuidaxService} for the reactive profile: same endpoints and
+ * parsing, but nothing waits on a thread while Quidax answers.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveQuidaxService {
+
+    private static final String ALL_TICKERS_KEY = "*";
+    private final WebClient webClient;
+    private final QuidaxTickerParser tickerParser;
+    private final CircuitBreaker circuitBreaker;
+    private final UpstreamRetry retry;
+    private final UpstreamRetry.Endpoint tickersEndpoint;
+    private final UpstreamRetry.Endpoint tickerEndpoint;
+    private final int fanOutParallelism;
+    private final Duration fanOutTimeout;
+
+    // Concurrent callers for the same endpoint share one outstanding upstream request
+    private final ConcurrentMap<String, Mono<Map<String, MarketData>>> marketsInFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Mono<MarketData>> marketInFlight = new ConcurrentHashMap<>();
+
+    public ReactiveQuidaxService(WebClient quidaxWebClient, QuidaxTickerParser tickerParser,
+                                 QuidaxProperties properties, CircuitBreaker quidaxCircuitBreaker,
+                                 UpstreamRetry quidaxRetry) {
+        this.webClient = quidaxWebClient;
+        this.tickerParser = tickerParser;
+        this.circuitBreaker = quidaxCircuitBreaker;
+        this.retry = quidaxRetry;
+        this.tickersEndpoint = quidaxRetry.endpoint("GET /markets/tickers");
+        this.tickerEndpoint = quidaxRetry.endpoint("GET /markets/tickers/{market}");
+        this.fanOutParallelism = properties.getHttp().getFanOutParallelism();
+        this.fanOutTimeout = properties.getHttp().getFanOutTimeout();
+    }
+
+    public Mono<Map<String, MarketData>> getMarkets() {
+        return shared(marketsInFlight, ALL_TICKERS_KEY,
+                () -> circuitBreaker.execute(retry.execute(tickersEndpoint, fetchMarkets()), Map::isEmpty));
+    }
+
+    /**
+     * Empty if Quidax doesn't know the market.
+     */
+    public Mono<MarketData> getMarket(String market) {
+        return shared(marketInFlight, market,
+                () -> circuitBreaker.execute(retry.execute(tickerEndpoint, fetchMarket(market)), marketData -> false));
+    }
+
+    /**
+     * Same as {@link QuidaxService#getMarkets(Collection)}: each market fetched on its own, a bounded
+     * number at a time, with whatever arrived before the shared deadline as the result, and
+     * {@code null} for markets Quidax doesn't have.
+     */
+    public Mono<Map<String, MarketData>> getMarkets(Collection<String> markets) {
+        return Flux.fromIterable(markets)
+                .flatMap(market -> getMarket(market)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .map(marketData -> Map.entry(market, marketData))
+                        .onErrorResume(e -> Mono.empty()), fanOutParallelism)
+                .take(fanOutTimeout)
+                .collect(LinkedHashMap::new, (fetched, entry) -> fetched.put(entry.getKey(), entry.getValue().orElse(null)));
+    }
+
+    private Mono<Map<String, MarketData>> fetchMarkets() {
+        // The body is collected into one buffer without blocking, then handed to the same
+        // streaming parser the blocking client uses
+        return webClient.get()
+                .uri("/api/v1/markets/tickers")
+                .retrieve()
+                .bodyToMono(DataBuffer.class)
+                .flatMap(body -> Mono.fromCallable(() -> {
+                    try (InputStream in = body.asInputStream(true)) {
+                        return tickerParser.readMarkets(in);
+                    }
+                }));
+    }
+
+    private Mono<MarketData> fetchMarket(String market) {
+        return webClient.get()
+                .uri("/api/v1/markets/tickers/{market}", market)
+                .retrieve()
+                .bodyToMono(SingleTickerResponse.class)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty())
+                .filter(response -> "success".equals(response.getStatus()))
+                .mapNotNull(SingleTickerResponse::getData)
+                .filter(marketData -> marketData.getTicker() != null);
+    }
+
+    private static <T> Mono<T> shared(ConcurrentMap<String, Mono<T>> inFlight, String key, Supplier<Mono<T>> fetch) {
+        return Mono.defer(() -> inFlight.computeIfAbsent(key, k -> fetch.get()
+                .doFinally(signal -> inFlight.remove(k))
+                .cache()));
+    }
+}
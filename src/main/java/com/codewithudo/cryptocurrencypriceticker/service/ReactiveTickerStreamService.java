@@ -0,0 +1,92 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.config.QuidaxProperties;
+import com.codewithudo.cryptocurrencypriceticker.dto.Ticker;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reactive counterpart of {@link TickerStreamService}: the same Server-Sent Events, as a {@link Flux}
+ * per subscriber instead of an emitter written from a thread.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveTickerStreamService {
+
+    // Replays the latest snapshot, which is what a new subscriber is sent first
+    private final Sinks.Many<TickerSnapshot> snapshots = Sinks.many().replay().latest();
+    private final Duration heartbeatInterval;
+
+    public ReactiveTickerStreamService(TickerSnapshotService tickerSnapshotService, QuidaxProperties properties) {
+        this.heartbeatInterval = Duration.ofMillis(properties.getStream().getHeartbeatIntervalMs());
+        TickerSnapshot snapshot = tickerSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            snapshots.tryEmitNext(snapshot);
+        }
+    }
+
+    @EventListener
+    public void onSnapshotPublished(TickerSnapshotPublishedEvent event) {
+        if (!event.getChangedMarkets().isEmpty()) {
+            // Snapshots can be published from more than one thread; the sink wants one at a time
+            snapshots.emitNext(event.getSnapshot(), Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+        }
+    }
+
+    /**
+     * A stream of ticker updates, limited to {@code markets} if given. The current tickers are
+     * sent straight away, after that only markets that changed.
+     */
+    public Flux<ServerSentEvent<Map<String, Ticker>>> subscribe(Collection<String> markets) {
+        Set<String> filter = markets == null || markets.isEmpty() ? null : Set.copyOf(markets);
+
+        Flux<ServerSentEvent<Map<String, Ticker>>> updates = Flux.defer(() -> {
+            AtomicLong sentVersion = new AtomicLong();
+            return snapshots.asFlux()
+                    // A subscriber that can't keep up skips straight to the newest snapshot. Since it gets
+                    // everything that changed after the last version it was sent, no market is lost
+                    .onBackpressureLatest()
+                    .filter(snapshot -> snapshot.getVersion() > sentVersion.get())
+                    .map(snapshot -> {
+                        Map<String, Ticker> changed = filter(snapshot.getTickersChangedSince(sentVersion.get()), filter);
+                        sentVersion.set(snapshot.getVersion());
+                        return ServerSentEvent.builder(changed)
+                                .id(Long.toString(snapshot.getVersion()))
+                                .event("tickers")
+                                .build();
+                    })
+                    .filter(event -> event.data() != null && !event.data().isEmpty());
+        });
+
+        // Proxies and load balancers drop idle connections
+        Flux<ServerSentEvent<Map<String, Ticker>>> heartbeats = Flux.interval(heartbeatInterval)
+                .onBackpressureDrop()
+                .map(tick -> ServerSentEvent.<Map<String, Ticker>>builder().comment("heartbeat").build());
+
+        return Flux.merge(updates, heartbeats);
+    }
+
+    private static Map<String, Ticker> filter(Map<String, Ticker> tickers, Set<String> markets) {
+        if (markets == null) {
+            return tickers;
+        }
+        Map<String, Ticker> filtered = new LinkedHashMap<>();
+        for (Map.Entry<String, Ticker> entry : tickers.entrySet()) {
+            if (markets.contains(entry.getKey())) {
+                filtered.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return filtered;
+    }
+}
@@ -0,0 +1,107 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.dto.FixedPoint;
+import com.codewithudo.cryptocurrencypriceticker.dto.NumericTicker;
+import com.codewithudo.cryptocurrencypriceticker.dto.Tick;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The last {@code capacity} ticks of one market in parallel primitive arrays, overwriting the
+ * oldest once full. Recording a tick allocates nothing; values are kept as {@link NumericTicker}
+ * mantissas and only turned back into strings when read.
+ */
+public class TickHistory {
+
+    // Guarded by this
+    private final long[] timestamps;
+    private final long[] prices;
+    private final long[] bids;
+    private final long[] asks;
+    private final long[] volumes;
+    // A market's scales can change between ticks, so each tick keeps its own
+    private final byte[] scales;
+    private final byte[] volumeScales;
+    private int next;
+    private int size;
+
+    public TickHistory(int capacity) {
+        timestamps = new long[capacity];
+        prices = new long[capacity];
+        bids = new long[capacity];
+        asks = new long[capacity];
+        volumes = new long[capacity];
+        scales = new byte[capacity];
+        volumeScales = new byte[capacity];
+    }
+
+    /**
+     * Appends a tick taken at {@code timestamp} (epoch millis). Ticks older than the latest one
+     * recorded, or repeating it exactly, are dropped, so the buffer stays in time order.
+     */
+    public synchronized boolean record(long timestamp, NumericTicker ticker) {
+        if (size > 0) {
+            int latest = index(size - 1);
+            if (timestamp < timestamps[latest] || (timestamp == timestamps[latest] && scales[latest] == ticker.getScale()
+                    && prices[latest] == ticker.getPrice() && bids[latest] == ticker.getBid()
+                    && asks[latest] == ticker.getAsk() && volumeScales[latest] == ticker.getVolumeScale()
+                    && volumes[latest] == ticker.getVolume())) {
+                return false;
+            }
+        }
+        timestamps[next] = timestamp;
+        prices[next] = ticker.getPrice();
+        bids[next] = ticker.getBid();
+        asks[next] = ticker.getAsk();
+        volumes[next] = ticker.getVolume();
+        scales[next] = (byte) ticker.getScale();
+        volumeScales[next] = (byte) ticker.getVolumeScale();
+        next = (next + 1) % timestamps.length;
+        size = Math.min(size + 1, timestamps.length);
+        return true;
+    }
+
+    /**
+     * Ticks with {@code from <= timestamp <= to} (epoch millis), oldest first.
+     */
+    public synchronized List<Tick> between(long from, long to) {
+        List<Tick> ticks = new ArrayList<>();
+        for (int i = firstAtOrAfter(from); i < size; i++) {
+            int slot = index(i);
+            if (timestamps[slot] > to) {
+                break;
+            }
+            int scale = scales[slot];
+            ticks.add(new Tick(timestamps[slot] / 1000, FixedPoint.format(prices[slot], scale),
+                    FixedPoint.format(bids[slot], scale), FixedPoint.format(asks[slot], scale),
+                    FixedPoint.format(volumes[slot], volumeScales[slot])));
+        }
+        return ticks;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Timestamps are in order, so binary search over the logical positions
+    private int firstAtOrAfter(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[index(mid)] < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Slot of the i-th oldest tick
+    private int index(int i) {
+        int oldest = size < timestamps.length ? 0 : next;
+        return (oldest + i) % timestamps.length;
+    }
+}
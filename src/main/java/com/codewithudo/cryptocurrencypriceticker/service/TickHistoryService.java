@@ -0,0 +1,77 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.config.QuidaxProperties;
+import com.codewithudo.cryptocurrencypriceticker.dto.MarketData;
+import com.codewithudo.cryptocurrencypriceticker.dto.NumericTicker;
+import com.codewithudo.cryptocurrencypriceticker.dto.Tick;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Recent ticks per market: every ticker that changed in a published snapshot, plus markets
+ * fetched on their own, each kept in a fixed-size {@link TickHistory}. Every tick it keeps is
+ * also passed on to the {@link CandleService}.
+ */
+@Service
+public class TickHistoryService {
+
+    private final int capacity;
+    private final CandleService candleService;
+    private final ConcurrentMap<String, TickHistory> histories = new ConcurrentHashMap<>();
+
+    public TickHistoryService(QuidaxProperties properties, CandleService candleService) {
+        this.capacity = properties.getHistory().getCapacity();
+        this.candleService = candleService;
+    }
+
+    @EventListener
+    public void onSnapshotPublished(TickerSnapshotPublishedEvent event) {
+        TickerSnapshot snapshot = event.getSnapshot();
+        for (String market : event.getChangedMarkets()) {
+            NumericTicker ticker = snapshot.getNumericTicker(market);
+            if (ticker != null) {
+                record(market, TickerSnapshot.timestampOf(snapshot.getMarketData(market), snapshot.getFetchedAt()), ticker);
+            }
+        }
+    }
+
+    /**
+     * Records a market fetched outside the snapshot.
+     */
+    public void record(String market, MarketData marketData) {
+        try {
+            record(market, TickerSnapshot.timestampOf(marketData, System.currentTimeMillis()),
+                    NumericTicker.of(marketData.getTicker()));
+        } catch (NumberFormatException | ArithmeticException e) {
+            // Same as the snapshot: anything that isn't a plain decimal has no numeric history
+        }
+    }
+
+    /**
+     * Ticks for {@code market} between {@code from} and {@code to} (epoch seconds, inclusive, either
+     * may be null), oldest first.
+     */
+    public List<Tick> getHistory(String market, Long from, Long to) {
+        TickHistory history = histories.get(market);
+        if (history == null) {
+            return Collections.emptyList();
+        }
+        return history.between(from != null ? from * 1000 : Long.MIN_VALUE,
+                to != null ? to * 1000 + 999 : Long.MAX_VALUE);
+    }
+
+    private void record(String market, long timestamp, NumericTicker ticker) {
+        TickHistory history = histories.computeIfAbsent(market, m -> new TickHistory(capacity));
+        // Only ticks the history accepted, so candles see them in order and without repeats
+        synchronized (history) {
+            if (history.record(timestamp, ticker)) {
+                candleService.record(market, timestamp, ticker);
+            }
+        }
+    }
+}
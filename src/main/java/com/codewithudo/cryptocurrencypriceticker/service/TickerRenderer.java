@@ -0,0 +1,80 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Turns snapshot data into response bodies: JSON via the application's ObjectMapper (so the
+ * bytes match what Spring MVC would have written) plus pre-compressed variants of it.
+ */
+@Slf4j
+@Component
+public class TickerRenderer {
+
+    public static final String GZIP = "gzip";
+    public static final String BROTLI = "br";
+
+    private final ObjectMapper objectMapper;
+    private final boolean brotliAvailable;
+
+    public TickerRenderer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        // Brotli is a native library; if it can't load on this platform we just don't offer br
+        this.brotliAvailable = Brotli4jLoader.isAvailable();
+        if (!brotliAvailable) {
+            log.warn("Brotli is not available on this platform, only gzip responses will be pre-compressed",
+                    Brotli4jLoader.getUnavailabilityCause());
+        }
+    }
+
+    public byte[] render(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize tickers", e);
+        }
+    }
+
+    /**
+     * Compressed copies of {@code json} keyed by their Content-Encoding token, in order of preference.
+     */
+    public Map<String, byte[]> compress(byte[] json) {
+        Map<String, byte[]> variants = new LinkedHashMap<>();
+        if (brotliAvailable) {
+            variants.put(BROTLI, brotli(json));
+        }
+        variants.put(GZIP, gzip(json));
+        return Collections.unmodifiableMap(variants);
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] brotli(byte[] json) {
+        try {
+            // Quality 11 is slow, but we only pay it once per snapshot rather than per request
+            return Encoder.compress(json, new Encoder.Parameters().setQuality(11).setMode(Encoder.Mode.TEXT));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.dto.MarketData;
+import com.codewithudo.cryptocurrencypriceticker.dto.NumericTicker;
+import com.codewithudo.cryptocurrencypriceticker.dto.Ticker;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+@Getter
+public class TickerSnapshot {
+    private final long version;
+    // Version of the last snapshot whose tickers differed from the one before it; unchanged polls keep it
+    private final long contentVersion;
+    private final long fetchedAt;
+    private final Map<String, MarketData> markets;
+    private final Map<String, Ticker> tickers;
+    // Parsed once here so consumers never have to re-parse the strings
+    private final Map<String, NumericTicker> numericTickers;
+    // Per market, the version of the snapshot in which its ticker last changed
+    private final Map<String, Long> marketVersions;
+    // Markets whose tickers differ from the previous snapshot (all of them for the first one)
+    private final Set<String> changedMarkets;
+    // Markets the previous snapshot had that this one doesn't
+    private final Set<String> removedMarkets;
+    // Every market dropped since the process started and not back since, with the version that dropped it
+    private final Map<String, Long> removedVersions;
+    // Response bodies rendered once per snapshot, so requests just copy bytes to the socket
+    private final byte[] tickersJson;
+    // tickersJson compressed ahead of time, keyed by Content-Encoding (br, gzip)
+    private final Map<String, byte[]> encodedTickersJson;
+    private final Map<String, byte[]> tickerJson;
+
+    public TickerSnapshot(long version, long fetchedAt, Map<String, MarketData> markets, TickerSnapshot previous,
+                          TickerRenderer renderer) {
+        this.version = version;
+        this.fetchedAt = fetchedAt;
+        // Adopted as-is: ExchangeRegistry hands out maps built fresh for each poll
+        this.markets = Collections.unmodifiableMap(markets);
+        this.tickers = Collections.unmodifiableMap(QuidaxService.getStringTickerMap(markets));
+
+        this.numericTickers = Collections.unmodifiableMap(toNumeric(tickers, previous));
+        this.marketVersions = Collections.unmodifiableMap(marketVersions(version, tickers, previous));
+        this.changedMarkets = Collections.unmodifiableSet(changedMarkets(version, marketVersions));
+        this.removedMarkets = Collections.unmodifiableSet(removedMarkets(tickers, previous));
+        this.removedVersions = Collections.unmodifiableMap(removedVersions(version, tickers, removedMarkets, previous));
+
+        this.tickersJson = renderer.render(tickers);
+        Map<String, byte[]> rendered = new HashMap<>(tickers.size() * 2);
+        for (Map.Entry<String, Ticker> entry : tickers.entrySet()) {
+            rendered.put(entry.getKey(), renderer.render(entry.getValue()));
+        }
+        this.tickerJson = Collections.unmodifiableMap(rendered);
+
+        // Only recompress when the data actually changed since the last poll
+        boolean unchanged = previous != null && Arrays.equals(previous.tickersJson, tickersJson);
+        this.encodedTickersJson = unchanged ? previous.encodedTickersJson : renderer.compress(tickersJson);
+        this.contentVersion = unchanged ? previous.contentVersion : version;
+    }
+
+    private static Map<String, Long> marketVersions(long version, Map<String, Ticker> tickers, TickerSnapshot previous) {
+        Map<String, Long> versions = new HashMap<>(tickers.size() * 2);
+        for (Map.Entry<String, Ticker> entry : tickers.entrySet()) {
+            String market = entry.getKey();
+            boolean unchanged = previous != null && entry.getValue().equals(previous.getTicker(market));
+            versions.put(market, unchanged ? previous.marketVersions.get(market) : version);
+        }
+        return versions;
+    }
+
+    private static Map<String, NumericTicker> toNumeric(Map<String, Ticker> tickers, TickerSnapshot previous) {
+        Map<String, NumericTicker> numeric = new HashMap<>(tickers.size() * 2);
+        for (Map.Entry<String, Ticker> entry : tickers.entrySet()) {
+            // A market's scales only grow (short of a volume too big for a long), so values stay
+            // comparable across snapshots
+            NumericTicker before = previous != null ? previous.getNumericTicker(entry.getKey()) : null;
+            try {
+                numeric.put(entry.getKey(), before != null
+                        ? NumericTicker.of(entry.getValue(), before.getScale(), before.getVolumeScale())
+                        : NumericTicker.of(entry.getValue()));
+            } catch (NumberFormatException | ArithmeticException e) {
+                // Leave out anything that isn't a plain decimal; the string form is still served
+            }
+        }
+        return numeric;
+    }
+
+    private static Set<String> changedMarkets(long version, Map<String, Long> marketVersions) {
+        Set<String> changed = new LinkedHashSet<>();
+        for (Map.Entry<String, Long> entry : marketVersions.entrySet()) {
+            if (entry.getValue() == version) {
+                changed.add(entry.getKey());
+            }
+        }
+        return changed;
+    }
+
+    private static Set<String> removedMarkets(Map<String, Ticker> tickers, TickerSnapshot previous) {
+        if (previous == null) {
+            return Collections.emptySet();
+        }
+        Set<String> removed = new LinkedHashSet<>(previous.tickers.keySet());
+        removed.removeAll(tickers.keySet());
+        return removed;
+    }
+
+    private static Map<String, Long> removedVersions(long version, Map<String, Ticker> tickers, Set<String> removed,
+                                                     TickerSnapshot previous) {
+        if (previous == null) {
+            return Collections.emptyMap();
+        }
+        if (removed.isEmpty() && Collections.disjoint(previous.removedVersions.keySet(), tickers.keySet())) {
+            return previous.removedVersions;
+        }
+        Map<String, Long> versions = new HashMap<>(previous.removedVersions);
+        versions.keySet().removeAll(tickers.keySet());
+        for (String market : removed) {
+            versions.put(market, version);
+        }
+        return versions;
+    }
+
+    public MarketData getMarketData(String market) {
+        return markets.get(market);
+    }
+
+    public Ticker getTicker(String market) {
+        return tickers.get(market);
+    }
+
+    public NumericTicker getNumericTicker(String market) {
+        return numericTickers.get(market);
+    }
+
+    public long getMarketVersion(String market) {
+        Long marketVersion = marketVersions.get(market);
+        return marketVersion != null ? marketVersion : version;
+    }
+
+    public byte[] getTickerJson(String market) {
+        return tickerJson.get(market);
+    }
+
+    /**
+     * Tickers of the markets that changed after snapshot {@code since}, in snapshot order.
+     */
+    public Map<String, Ticker> getTickersChangedSince(long since) {
+        Map<String, Ticker> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, Ticker> entry : tickers.entrySet()) {
+            if (getMarketVersion(entry.getKey()) > since) {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Markets dropped after snapshot {@code since} that this snapshot doesn't have.
+     */
+    public Set<String> getMarketsRemovedSince(long since) {
+        Set<String> removed = new LinkedHashSet<>();
+        removedVersions.forEach((market, removedIn) -> {
+            if (removedIn > since) {
+                removed.add(market);
+            }
+        });
+        return removed;
+    }
+
+    public boolean wasRemovedSince(String market, long since) {
+        Long removedIn = removedVersions.get(market);
+        return removedIn != null && removedIn > since;
+    }
+
+    /**
+     * A JSON object of the given markets' tickers, stitched together from the per-market JSON
+     * rendered when this snapshot was built rather than serialized again.
+     */
+    public byte[] renderTickers(Collection<String> marketNames) {
+        Map<String, byte[]> selected = new LinkedHashMap<>();
+        for (String market : marketNames) {
+            byte[] json = tickerJson.get(market);
+            if (json != null) {
+                selected.put(market, json);
+            }
+        }
+        return renderJson(selected);
+    }
+
+    /**
+     * A JSON object with each market's already rendered ticker JSON as its value.
+     */
+    public static byte[] renderJson(Map<String, byte[]> tickerJson) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * tickerJson.size() + 2);
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        out.write('{');
+        boolean first = true;
+        for (Map.Entry<String, byte[]> entry : tickerJson.entrySet()) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.write('"');
+            out.writeBytes(encoder.quoteAsUTF8(entry.getKey()));
+            out.write('"');
+            out.write(':');
+            out.writeBytes(entry.getValue());
+        }
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    /**
+     * When Quidax produced this value, in epoch millis. {@code MarketData.at} is in seconds; if it is
+     * missing we fall back to the time we received it.
+     */
+    public static long timestampOf(MarketData marketData, long receivedAt) {
+        return marketData.getAt() > 0 ? marketData.getAt() * 1000 : receivedAt;
+    }
+}
@@ -0,0 +1,28 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * Published every time the refresher swaps in a new {@link TickerSnapshot}.
+ */
+@Getter
+@AllArgsConstructor
+public class TickerSnapshotPublishedEvent {
+    // null for the very first snapshot
+    private final TickerSnapshot previous;
+    private final TickerSnapshot snapshot;
+
+    /**
+     * Markets whose tickers differ from the previous snapshot; every market for the first one.
+     */
+    public Set<String> getChangedMarkets() {
+        return snapshot.getChangedMarkets();
+    }
+
+    public Set<String> getRemovedMarkets() {
+        return snapshot.getRemovedMarkets();
+    }
+}
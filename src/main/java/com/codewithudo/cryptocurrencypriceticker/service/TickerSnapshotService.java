@@ -0,0 +1,524 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.config.QuidaxProperties;
+import com.codewithudo.cryptocurrencypriceticker.dto.MarketData;
+import com.codewithudo.cryptocurrencypriceticker.dto.Ticker;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Slf4j
+@Service
+public class TickerSnapshotService {
+
+    private static final String ALL_MARKETS = "*";
+    private static final byte[] EMPTY_JSON_OBJECT = "{}".getBytes(StandardCharsets.UTF_8);
+    // What a delta sends for a market that's gone, as in a JSON merge patch
+    private static final byte[] JSON_NULL = "null".getBytes(StandardCharsets.UTF_8);
+    // Bounds unknownMarkets, which anyone can add to by asking for made-up markets
+    private static final int MAX_UNKNOWN_MARKETS = 10_000;
+
+    private final ExchangeRegistry exchangeRegistry;
+    private final QuidaxProperties properties;
+    private final Executor refreshExecutor;
+    private final TickerRenderer renderer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TickHistoryService tickHistoryService;
+    private final AtomicReference<TickerSnapshot> current = new AtomicReference<>();
+    // Versions restart at 1 with the process, so ETags and ?since= tokens carry this to stay unique
+    // across restarts and between instances (random, so two started in the same millisecond still differ)
+    private final String generation = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, Character.MAX_RADIX);
+
+    // Markets the bulk payload doesn't carry, fetched one at a time
+    private final ConcurrentMap<String, CachedMarket> marketCache = new ConcurrentHashMap<>();
+    // Markets the exchange says it doesn't have, until when we take its word for it
+    private final ConcurrentMap<String, Long> unknownMarkets = new ConcurrentHashMap<>();
+    // Keys with a background refresh already queued, so a burst of stale reads only triggers one
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    public TickerSnapshotService(ExchangeRegistry exchangeRegistry,
+                                 QuidaxProperties properties,
+                                 @Qualifier("applicationTaskExecutor") Executor refreshExecutor,
+                                 TickerRenderer renderer,
+                                 ApplicationEventPublisher eventPublisher,
+                                 TickHistoryService tickHistoryService) {
+        this.exchangeRegistry = exchangeRegistry;
+        this.properties = properties;
+        this.refreshExecutor = refreshExecutor;
+        this.renderer = renderer;
+        this.eventPublisher = eventPublisher;
+        this.tickHistoryService = tickHistoryService;
+    }
+
+    @Scheduled(fixedDelayString = "${quidax.refresh-interval-ms:1000}")
+    public void refresh() {
+        try {
+            refreshNow();
+        } catch (RestClientException e) {
+            log.warn("Failed to refresh tickers: {}", e.getMessage());
+        }
+    }
+
+    private void refreshNow() {
+        // Stamped with when the poll started, so a slow poll can't replace one that started after it
+        long fetchedAt = System.currentTimeMillis();
+        update(exchangeRegistry.getMarkets(), fetchedAt);
+    }
+
+    /**
+     * Publishes a snapshot of {@code markets}, every exchange's markets as combined by the
+     * {@link ExchangeRegistry}, and returns the snapshot now current (the previous one if
+     * {@code markets} is empty, possibly {@code null}).
+     */
+    public TickerSnapshot update(Map<String, MarketData> markets) {
+        return update(markets, System.currentTimeMillis());
+    }
+
+    /**
+     * Like {@link #update(Map)}, for the markets of one exchange fetched outside the registry's polling.
+     */
+    public TickerSnapshot update(String exchange, Map<String, MarketData> markets) {
+        return update(exchangeRegistry.update(exchange, markets));
+    }
+
+    private TickerSnapshot update(Map<String, MarketData> markets, long fetchedAt) {
+        if (markets.isEmpty()) {
+            // Keep serving the previous snapshot rather than wiping it with an empty one
+            log.warn("No exchange returned any tickers, keeping snapshot {}", versionOf(current.get()));
+            return current.get();
+        }
+        TickerSnapshotPublishedEvent event = publish(markets, fetchedAt);
+        if (event == null) {
+            return current.get();
+        }
+        // Listeners (streams, etc.) run outside the lock so a slow one can't hold up the next publish
+        eventPublisher.publishEvent(event);
+        return event.getSnapshot();
+    }
+
+    // Synchronized because callers blocked on a hard-expired snapshot publish too, not just the scheduler
+    private synchronized TickerSnapshotPublishedEvent publish(Map<String, MarketData> markets, long fetchedAt) {
+        TickerSnapshot previous = current.get();
+        if (previous != null && fetchedAt < previous.getFetchedAt()) {
+            // Lost a race with a newer poll; publishing it would roll every market back
+            log.debug("Dropping tickers fetched at {}, snapshot {} is newer", fetchedAt, previous.getVersion());
+            return null;
+        }
+        TickerSnapshot snapshot = new TickerSnapshot(versionOf(previous) + 1, fetchedAt, markets, previous, renderer);
+        current.set(snapshot);
+        return new TickerSnapshotPublishedEvent(previous, snapshot);
+    }
+
+    /**
+     * The latest published snapshot, or {@code null} if the first refresh hasn't completed yet.
+     */
+    public TickerSnapshot getSnapshot() {
+        return current.get();
+    }
+
+    public CachedValue<Map<String, Ticker>> getTickers() {
+        return getTickers(getFreshSnapshot());
+    }
+
+    public CachedValue<Map<String, Ticker>> getTickers(TickerSnapshot snapshot) {
+        if (snapshot == null) {
+            return new CachedValue<>(Collections.emptyMap(), 0, EMPTY_JSON_OBJECT);
+        }
+        long age = ageOf(snapshot.getFetchedAt());
+        return new CachedValue<>(snapshot.getTickers(), age, snapshot.getTickersJson(), snapshot.getEncodedTickersJson(),
+                etag(snapshot.getContentVersion()), versionToken(snapshot.getVersion()), isStale(age));
+    }
+
+    /**
+     * Only the markets whose tickers changed after snapshot {@code since}, plus a {@code null} for
+     * each market removed since. A version we didn't issue (from before a restart, or from another
+     * instance) gets every market, like a first request.
+     */
+    private CachedValue<Map<String, Ticker>> getTickersSince(TickerSnapshot snapshot, String since) {
+        long after = sinceVersion(snapshot, since);
+        if (after < 0) {
+            return getTickers(snapshot);
+        }
+        Map<String, Ticker> changed = snapshot.getTickersChangedSince(after);
+        Map<String, byte[]> json = new LinkedHashMap<>();
+        changed.forEach((market, ticker) -> json.put(market, snapshot.getTickerJson(market)));
+        for (String market : snapshot.getMarketsRemovedSince(after)) {
+            changed.put(market, null);
+            json.put(market, JSON_NULL);
+        }
+        long age = ageOf(snapshot.getFetchedAt());
+        return new CachedValue<>(changed, age, TickerSnapshot.renderJson(json), Collections.emptyMap(),
+                etag(snapshot.getContentVersion()), versionToken(snapshot.getVersion()), isStale(age));
+    }
+
+    /**
+     * Only the requested markets (and only those that changed after {@code since}, if given), in the
+     * order asked for. {@code null} or empty {@code markets} means all of them. Markets we can't serve
+     * from the snapshot are fetched individually, in parallel, and left out if Quidax doesn't answer
+     * in time; if the bulk endpoint itself is down, every requested market is fetched that way.
+     * Markets the exchange recently said it doesn't have aren't asked for again.
+     */
+    public CachedValue<Map<String, Ticker>> getTickers(Collection<String> markets, String since) {
+        if (markets == null || markets.isEmpty()) {
+            return getTickers(getFreshSnapshot(), null, since);
+        }
+
+        TickerSnapshot snapshot;
+        try {
+            snapshot = getFreshSnapshot();
+        } catch (RestClientException e) {
+            log.warn("Bulk tickers unavailable, fetching {} markets individually: {}", markets.size(), e.getMessage());
+            snapshot = null;
+        }
+        List<String> missing = getMissingMarkets(markets);
+        if (!missing.isEmpty()) {
+            fetchMarkets(missing);
+        }
+        return getTickers(snapshot, markets, since);
+    }
+
+    /**
+     * Fetches {@code markets} individually from their exchanges and caches what comes back. Blocks.
+     */
+    public void fetchMarkets(Collection<String> markets) {
+        exchangeRegistry.getMarkets(markets).forEach(this::cacheMarket);
+    }
+
+    /**
+     * Like {@link #getTickers(Collection, String)}, but only from what's already cached: nothing is fetched.
+     */
+    public CachedValue<Map<String, Ticker>> getTickers(TickerSnapshot snapshot, Collection<String> markets, String since) {
+        if (markets == null || markets.isEmpty()) {
+            return since != null ? getTickersSince(snapshot, since) : getTickers(snapshot);
+        }
+
+        // As with ?since= alone, a version we didn't issue gets the full selection
+        long after = since != null ? Math.max(0, sinceVersion(snapshot, since)) : 0;
+        Map<String, Ticker> selected = new LinkedHashMap<>();
+        Map<String, byte[]> json = new LinkedHashMap<>();
+        long age = 0;
+        boolean fromSnapshot = snapshot != null;
+        boolean stale = false;
+        for (String market : markets) {
+            CachedValue<Ticker> cached = lookup(snapshot, market);
+            if (cached == null) {
+                if (after > 0 && snapshot.wasRemovedSince(market, after)) {
+                    selected.put(market, null);
+                    json.put(market, JSON_NULL);
+                }
+                continue;
+            }
+            // Markets fetched on their own carry no version, so they're always included
+            boolean individual = cached.getEtag() == null;
+            if (individual || snapshot.getMarketVersion(market) > after) {
+                selected.put(market, cached.getValue());
+                json.put(market, cached.getJson());
+                age = Math.max(age, cached.getAgeMillis());
+                fromSnapshot &= !individual;
+                stale |= cached.isStale();
+            }
+        }
+        // Tagged with the content version like the full map, which changes whenever any market does;
+        // markets fetched individually change outside the snapshot, so those responses get no ETag
+        return new CachedValue<>(selected, age, TickerSnapshot.renderJson(json), Collections.emptyMap(),
+                fromSnapshot ? etag(snapshot.getContentVersion()) : null,
+                snapshot != null ? versionToken(snapshot.getVersion()) : null, stale);
+    }
+
+    /**
+     * The requested markets we can't serve without going to Quidax: never seen, or past their hard TTL.
+     * Markets the exchange recently said it doesn't have aren't included.
+     */
+    public List<String> getMissingMarkets(Collection<String> markets) {
+        List<String> missing = new ArrayList<>();
+        for (String market : new LinkedHashSet<>(markets)) {
+            if (getTickerIfFresh(market) == null && !isUnknown(market)) {
+                missing.add(market);
+            }
+        }
+        return missing;
+    }
+
+    // The current snapshot, refreshed first if it is past its hard TTL (or in the background past the soft one)
+    private TickerSnapshot getFreshSnapshot() {
+        TickerSnapshot snapshot = getSnapshotIfFresh();
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        TickerSnapshot stale = current.get();
+        try {
+            // Nothing polled yet (e.g. right after startup) or past the hard TTL, so wait for Quidax
+            refreshNow();
+        } catch (RestClientException e) {
+            if (stale == null) {
+                throw e;
+            }
+            log.warn("Serving tickers past their hard TTL, refresh failed: {}", e.getMessage());
+            return stale;
+        }
+        return current.get();
+    }
+
+    /**
+     * The current snapshot if it can be served without waiting for Quidax, i.e. it exists and was
+     * fetched within its hard TTL (past the soft TTL a background refresh is started). Never blocks.
+     */
+    public TickerSnapshot getSnapshotIfFresh() {
+        TickerSnapshot snapshot = current.get();
+        if (snapshot == null) {
+            return null;
+        }
+        // Measured from the poll, not the tickers' "at": a market nobody trades keeps an old "at"
+        // however often we fetch it, and would hold the whole snapshot past its TTL
+        long age = ageOf(snapshot.getFetchedAt());
+        if (isOlderThan(age, properties.getCache().getHardTtl())) {
+            return null;
+        }
+        if (isOlderThan(age, properties.getCache().getSoftTtl())) {
+            refreshInBackground(ALL_MARKETS, this::refreshNow);
+        }
+        return snapshot;
+    }
+
+    public CachedValue<Ticker> getTicker(String market) {
+        CachedValue<Ticker> cached = getTickerIfFresh(market);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Never seen this market (nothing to serve while we wait for Quidax), or it's past its hard TTL
+        CachedValue<Ticker> stale = lookup(market);
+        if (isUnknown(market)) {
+            return stale;
+        }
+        try {
+            if (isInSnapshot(market)) {
+                refreshNow();
+            } else {
+                fetchMarket(market);
+            }
+        } catch (RestClientException e) {
+            if (stale == null) {
+                throw e;
+            }
+            log.warn("Serving {} past its hard TTL, refresh failed: {}", market, e.getMessage());
+            return stale;
+        }
+        CachedValue<Ticker> reloaded = lookup(market);
+        return reloaded != null ? reloaded : stale;
+    }
+
+    /**
+     * The cached ticker for {@code market} if it can be served without waiting for Quidax, i.e.
+     * we have one and it is within its hard TTL (past the soft TTL a background refresh is started).
+     * Never blocks.
+     */
+    public CachedValue<Ticker> getTickerIfFresh(String market) {
+        Found found = find(current.get(), market);
+        if (found == null || isOlderThan(ageOf(found.fetchedAt()), properties.getCache().hardTtlFor(market))) {
+            return null;
+        }
+        if (isOlderThan(ageOf(found.fetchedAt()), properties.getCache().softTtlFor(market))) {
+            if (isInSnapshot(market)) {
+                refreshInBackground(ALL_MARKETS, this::refreshNow);
+            } else {
+                refreshInBackground(market, () -> fetchMarket(market));
+            }
+        }
+        return found.value();
+    }
+
+    /**
+     * Whatever we have for {@code market}, however old, or {@code null} if we've never seen it.
+     */
+    public CachedValue<Ticker> lookup(String market) {
+        return lookup(current.get(), market);
+    }
+
+    private CachedValue<Ticker> lookup(TickerSnapshot snapshot, String market) {
+        Found found = find(snapshot, market);
+        if (found == null) {
+            return null;
+        }
+        if (isOlderThan(ageOf(found.fetchedAt()), properties.getCache().hardTtlFor(market))) {
+            return found.value().asStale();
+        }
+        return found.value();
+    }
+
+    // The ticker's own "at" only goes into the Age header; whether it's fresh enough to serve
+    // depends on when we last fetched it
+    private Found find(TickerSnapshot snapshot, String market) {
+        Found fromSnapshot = null;
+        if (properties.isSnapshotLookupEnabled() && snapshot != null) {
+            MarketData marketData = snapshot.getMarketData(market);
+            if (marketData != null) {
+                long timestamp = TickerSnapshot.timestampOf(marketData, snapshot.getFetchedAt());
+                fromSnapshot = new Found(new CachedValue<>(marketData.getTicker(), ageOf(timestamp),
+                        snapshot.getTickerJson(market), Collections.emptyMap(), etag(snapshot.getMarketVersion(market)),
+                        versionToken(snapshot.getVersion())), snapshot.getFetchedAt());
+            }
+        }
+        // A market is only cached on its own if the snapshot couldn't serve it, so whichever is newer wins
+        CachedMarket cached = marketCache.get(market);
+        if (cached != null && (fromSnapshot == null || cached.fetchedAt > fromSnapshot.fetchedAt())) {
+            return new Found(cached.toCachedValue(), cached.fetchedAt);
+        }
+        return fromSnapshot;
+    }
+
+    /**
+     * True if {@code market} is answered from the bulk snapshot, so refreshing it means refreshing
+     * the snapshot rather than fetching the market on its own.
+     */
+    public boolean isInSnapshot(String market) {
+        TickerSnapshot snapshot = current.get();
+        return properties.isSnapshotLookupEnabled() && snapshot != null && snapshot.getMarketData(market) != null;
+    }
+
+    private void fetchMarket(String market) {
+        cacheMarket(market, exchangeRegistry.getMarket(market));
+    }
+
+    /**
+     * Caches a market the bulk payload doesn't carry, as fetched from Quidax on its own. {@code null}
+     * means the exchange doesn't have it, which is remembered for {@code quidax.cache.unknown-market-ttl}.
+     */
+    public void cacheMarket(String market, MarketData marketData) {
+        if (marketData == null) {
+            rememberUnknown(market);
+            return;
+        }
+        unknownMarkets.remove(market);
+        // marketData may be shared with other callers, so a missing "at" is filled in here, not on it
+        long fetchedAt = System.currentTimeMillis();
+        marketCache.put(market, new CachedMarket(marketData, renderer.render(marketData.getTicker()), fetchedAt,
+                TickerSnapshot.timestampOf(marketData, fetchedAt)));
+        tickHistoryService.record(market, marketData);
+    }
+
+    /**
+     * True if the exchange said it doesn't have {@code market} within {@code quidax.cache.unknown-market-ttl}.
+     */
+    public boolean isUnknown(String market) {
+        Long until = unknownMarkets.get(market);
+        if (until == null) {
+            return false;
+        }
+        if (until < System.currentTimeMillis()) {
+            unknownMarkets.remove(market, until);
+            return false;
+        }
+        return true;
+    }
+
+    private void rememberUnknown(String market) {
+        long now = System.currentTimeMillis();
+        if (unknownMarkets.size() >= MAX_UNKNOWN_MARKETS) {
+            unknownMarkets.values().removeIf(until -> until < now);
+            if (unknownMarkets.size() >= MAX_UNKNOWN_MARKETS) {
+                return;
+            }
+        }
+        unknownMarkets.put(market, now + properties.getCache().getUnknownMarketTtl().toMillis());
+    }
+
+    public int getMaxBatchMarkets() {
+        return properties.getMaxBatchMarkets();
+    }
+
+    private void refreshInBackground(String key, Runnable reload) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    reload.run();
+                } catch (RestClientException e) {
+                    log.warn("Background refresh of {} failed: {}", key, e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    private String etag(long version) {
+        return "W/\"" + versionToken(version) + "\"";
+    }
+
+    private String versionToken(long version) {
+        return generation + "-" + version;
+    }
+
+    // The snapshot version in a ?since= token, or -1 if it isn't one this instance issued
+    private long sinceVersion(TickerSnapshot snapshot, String since) {
+        if (snapshot == null || !since.startsWith(generation + "-")) {
+            return -1;
+        }
+        try {
+            long version = Long.parseLong(since.substring(generation.length() + 1));
+            return version <= snapshot.getVersion() ? version : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long ageOf(long timestamp) {
+        // Clamp so a Quidax clock slightly ahead of ours doesn't produce a negative age
+        return Math.max(0, System.currentTimeMillis() - timestamp);
+    }
+
+    private boolean isStale(long ageMillis) {
+        return isOlderThan(ageMillis, properties.getCache().getHardTtl());
+    }
+
+    private static boolean isOlderThan(long ageMillis, Duration ttl) {
+        return ageMillis > ttl.toMillis();
+    }
+
+    private static long versionOf(TickerSnapshot snapshot) {
+        return snapshot == null ? 0 : snapshot.getVersion();
+    }
+
+    private record Found(CachedValue<Ticker> value, long fetchedAt) {
+    }
+
+    @AllArgsConstructor
+    private static class CachedMarket {
+        private final MarketData marketData;
+        private final byte[] json;
+        private final long fetchedAt;
+        // When the exchange produced it, for the Age header
+        private final long timestamp;
+
+        CachedValue<Ticker> toCachedValue() {
+            return new CachedValue<>(marketData.getTicker(), ageOf(timestamp), json);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.config.QuidaxProperties;
+import com.codewithudo.cryptocurrencypriceticker.dto.Ticker;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pushes ticker changes to Server-Sent Events subscribers as each new snapshot is published.
+ */
+@Slf4j
+@Service
+@Profile("!reactive")
+public class TickerStreamService {
+
+    private final TickerSnapshotService tickerSnapshotService;
+    private final QuidaxProperties.Stream settings;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // Writes happen on virtual threads so a slow subscriber only ever blocks its own stream
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+
+    public TickerStreamService(TickerSnapshotService tickerSnapshotService, QuidaxProperties properties) {
+        this.tickerSnapshotService = tickerSnapshotService;
+        this.settings = properties.getStream();
+    }
+
+    /**
+     * Opens a stream of ticker updates, limited to {@code markets} if given. The current tickers
+     * are sent straight away, after that only markets that changed.
+     */
+    public SseEmitter subscribe(Collection<String> markets) {
+        // No timeout: the stream lives until the client goes away
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter, markets == null || markets.isEmpty() ? null : new HashSet<>(markets));
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        // Registered and sent the current tickers under the subscriber's lock, so a snapshot published
+        // meanwhile waits its turn and can't overtake them with an update they'd then overwrite
+        synchronized (subscriber) {
+            subscribers.add(subscriber);
+            TickerSnapshot snapshot = tickerSnapshotService.getSnapshot();
+            if (snapshot != null) {
+                subscriber.sentVersion = snapshot.getVersion();
+                subscriber.publisher.publish(snapshot.getVersion(), subscriber.filter(snapshot.getTickers()));
+            }
+        }
+        return emitter;
+    }
+
+    @EventListener
+    public void onSnapshotPublished(TickerSnapshotPublishedEvent event) {
+        TickerSnapshot snapshot = event.getSnapshot();
+        Map<String, Ticker> changed = new LinkedHashMap<>();
+        for (String market : event.getChangedMarkets()) {
+            changed.put(market, snapshot.getTicker(market));
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.publisher.isStalled(settings.getSendTimeLimit())) {
+                drop(subscriber, new IOException("Subscriber stopped reading"));
+                continue;
+            }
+            subscriber.publish(event, changed);
+        }
+    }
+
+    // Proxies and load balancers drop idle connections, and this is how we notice dead clients
+    @Scheduled(fixedDelayString = "${quidax.stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            // A subscriber that's mid-write isn't idle and doesn't need one
+            if (subscriber.publisher.isIdle()) {
+                sender.execute(() -> {
+                    try {
+                        subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } catch (IOException | IllegalStateException e) {
+                        drop(subscriber, e);
+                    }
+                });
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber, Exception e) {
+        log.debug("Dropping ticker stream subscriber: {}", e.getMessage());
+        remove(subscriber);
+        subscriber.emitter.completeWithError(e);
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriber.publisher.close();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    private class Subscriber {
+        private final SseEmitter emitter;
+        // null means every market
+        private final Set<String> markets;
+        private final ConflatingPublisher<Ticker> publisher;
+        // Version of the newest snapshot handed to the publisher; guarded by this
+        private long sentVersion;
+
+        Subscriber(SseEmitter emitter, Set<String> markets) {
+            this.emitter = emitter;
+            this.markets = markets;
+            this.publisher = new ConflatingPublisher<>(sender, this::send, e -> drop(this, e));
+        }
+
+        synchronized void publish(TickerSnapshotPublishedEvent event, Map<String, Ticker> changed) {
+            TickerSnapshot snapshot = event.getSnapshot();
+            if (snapshot.getVersion() <= sentVersion) {
+                // Already covered by the tickers it was sent when it subscribed
+                return;
+            }
+            // Usually this subscriber is one snapshot behind and gets the shared change set; if it
+            // joined between two snapshots, or events arrived out of order, work out its own
+            TickerSnapshot previous = event.getPrevious();
+            Map<String, Ticker> updates = previous != null && previous.getVersion() == sentVersion
+                    ? changed
+                    : snapshot.getTickersChangedSince(sentVersion);
+            sentVersion = snapshot.getVersion();
+            // Merged with anything still waiting for this subscriber, so it never holds more than one
+            // ticker per market no matter how far behind it is
+            publisher.publish(snapshot.getVersion(), filter(updates));
+        }
+
+        private void send(long version, Map<String, Ticker> tickers) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(version))
+                    .name("tickers")
+                    .data(tickers, MediaType.APPLICATION_JSON));
+        }
+
+        Map<String, Ticker> filter(Map<String, Ticker> tickers) {
+            if (markets == null) {
+                return tickers;
+            }
+            Map<String, Ticker> filtered = new LinkedHashMap<>();
+            for (Map.Entry<String, Ticker> entry : tickers.entrySet()) {
+                if (markets.contains(entry.getKey())) {
+                    filtered.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return filtered;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.ResourceAccessException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Retries and hedges idempotent GETs to Quidax, all within one deadline per call.
+ * <p>
+ * Failures that mean Quidax isn't working (the same ones the {@link CircuitBreaker} counts) are
+ * retried up to {@code maxAttempts} times, sleeping a random "full jitter" backoff between
+ * attempts so a fleet of instances doesn't retry in lockstep. With hedging on, an attempt that
+ * hasn't answered by the observed {@code hedgePercentile} latency of its endpoint gets a second,
+ * identical request alongside it, and whichever answers first wins.
+ */
+@Slf4j
+public class UpstreamRetry {
+
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration timeout;
+    private final boolean hedge;
+    private final double hedgePercentile;
+    private final Duration minHedgeDelay;
+    // Attempts run here so the caller can stop waiting at the deadline, or when a hedge wins
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public UpstreamRetry(int maxAttempts, Duration initialBackoff, Duration maxBackoff, Duration timeout,
+                         boolean hedge, double hedgePercentile, Duration minHedgeDelay) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.timeout = timeout;
+        this.hedge = hedge;
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeDelay = minHedgeDelay;
+    }
+
+    /**
+     * A latency history for one endpoint; calls to the same endpoint should share it.
+     */
+    public Endpoint endpoint(String name) {
+        return new Endpoint(name);
+    }
+
+    public <T> T execute(Endpoint endpoint, Supplier<T> call) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return hedged(endpoint, call, deadline);
+            } catch (RuntimeException e) {
+                long backoff = backoff(attempt).toNanos();
+                if (attempt >= maxAttempts || !CircuitBreaker.isFailure(e)
+                        || System.nanoTime() + backoff >= deadline) {
+                    throw e;
+                }
+                log.debug("Retrying {} after attempt {} failed: {}", endpoint.name, attempt, e.getMessage());
+                sleep(backoff);
+            }
+        }
+    }
+
+    public <T> Mono<T> execute(Endpoint endpoint, Mono<T> call) {
+        Mono<T> attempt = Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnSuccess(result -> endpoint.latency.record(System.nanoTime() - start));
+        });
+        Mono<T> hedged = Mono.defer(() -> {
+            Duration delay = hedgeDelay(endpoint);
+            // First signal wins, error or not; the other attempt is cancelled
+            return delay == null ? attempt : Mono.firstWithSignal(attempt, Mono.delay(delay).then(attempt));
+        });
+        return hedged
+                .retryWhen(Retry.backoff(maxAttempts - 1, initialBackoff)
+                        .maxBackoff(maxBackoff)
+                        .jitter(1.0)
+                        .filter(CircuitBreaker::isFailure)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .timeout(timeout);
+    }
+
+    private <T> T hedged(Endpoint endpoint, Supplier<T> call, long deadline) {
+        CompletionService<T> attempts = new ExecutorCompletionService<>(executor);
+        List<Future<T>> started = new ArrayList<>(2);
+        started.add(attempts.submit(() -> timed(endpoint, call)));
+        Duration hedgeDelay = hedgeDelay(endpoint);
+        long hedgeAt = hedgeDelay != null ? System.nanoTime() + hedgeDelay.toNanos() : Long.MAX_VALUE;
+        int outstanding = 1;
+        try {
+            while (true) {
+                boolean canHedge = started.size() == 1 && outstanding == 1 && hedgeAt < deadline;
+                long waitUntil = canHedge ? hedgeAt : deadline;
+                Future<T> done = attempts.poll(waitUntil - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    if (!canHedge) {
+                        throw new ResourceAccessException(endpoint.name + " didn't answer within " + timeout);
+                    }
+                    log.debug("Hedging {} after {}", endpoint.name, hedgeDelay);
+                    started.add(attempts.submit(() -> timed(endpoint, call)));
+                    outstanding++;
+                    continue;
+                }
+                outstanding--;
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    // The other attempt may still answer; otherwise this failure is the result
+                    if (outstanding == 0) {
+                        throw unwrap(e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted waiting for " + endpoint.name);
+        } finally {
+            // HttpClient.send gives up on interrupt, so the losing request doesn't linger
+            started.forEach(attempt -> attempt.cancel(true));
+        }
+    }
+
+    private static <T> T timed(Endpoint endpoint, Supplier<T> call) {
+        long start = System.nanoTime();
+        T result = call.get();
+        endpoint.latency.record(System.nanoTime() - start);
+        return result;
+    }
+
+    // No hedging until the endpoint has enough history to say what "slow" is
+    private Duration hedgeDelay(Endpoint endpoint) {
+        if (!hedge) {
+            return null;
+        }
+        long percentile = endpoint.latency.percentile(hedgePercentile);
+        return percentile < 0 ? null : Duration.ofNanos(Math.max(percentile, minHedgeDelay.toNanos()));
+    }
+
+    private Duration backoff(int attempt) {
+        long cap = Math.min(maxBackoff.toNanos(), initialBackoff.toNanos() << Math.min(attempt - 1, 30));
+        return Duration.ofNanos(ThreadLocalRandom.current().nextLong(Math.max(1, cap)));
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted between retries");
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new ResourceAccessException(String.valueOf(cause));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public static final class Endpoint {
+        private final String name;
+        private final LatencyTracker latency = new LatencyTracker();
+
+        private Endpoint(String name) {
+            this.name = name;
+        }
+    }
+}
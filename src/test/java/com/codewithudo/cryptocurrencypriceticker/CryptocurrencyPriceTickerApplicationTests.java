@@ -1,13 +1,52 @@
 package com.codewithudo.cryptocurrencypriceticker;
 
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 
 @SpringBootTest
 class CryptocurrencyPriceTickerApplicationTests {
 
+    // The background refresher starts polling as soon as the context is up; keep it off the network
+    private static final HttpServer quidax = startQuidax();
+
+    @DynamicPropertySource
+    static void quidaxProperties(DynamicPropertyRegistry registry) {
+        registry.add("quidax.base-url", () -> "http://127.0.0.1:" + quidax.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopQuidax() {
+        quidax.stop(0);
+    }
+
     @Test
     void contextLoads() {
     }
 
+    private static HttpServer startQuidax() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/api/v1/markets/tickers", exchange -> {
+                byte[] bytes = "{\"status\":\"success\",\"data\":{}}".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
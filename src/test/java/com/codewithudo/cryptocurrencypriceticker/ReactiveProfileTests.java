@@ -0,0 +1,106 @@
+package com.codewithudo.cryptocurrencypriceticker;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Boots the "reactive" profile against a stub Quidax and checks it answers like the servlet stack.
+ */
+@ActiveProfiles("reactive")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ReactiveProfileTests {
+
+    private static final HttpServer quidax = startQuidax();
+
+    @Autowired
+    private ReactiveWebServerApplicationContext context;
+
+    @Autowired
+    private WebTestClient client;
+
+    @DynamicPropertySource
+    static void quidaxProperties(DynamicPropertyRegistry registry) {
+        registry.add("quidax.base-url", () -> "http://127.0.0.1:" + quidax.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopQuidax() {
+        quidax.stop(0);
+    }
+
+    @Test
+    void runsOnNetty() {
+        assertInstanceOf(NettyWebServer.class, context.getWebServer());
+    }
+
+    @Test
+    void servesTickersWithTheSameCachingHeaders() {
+        String etag = client.get().uri("/api/v1/markets/tickers")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.AGE)
+                .expectHeader().exists("X-Snapshot-Version")
+                .expectBody()
+                .jsonPath("$.btcngn.last").isEqualTo("1.5")
+                .returnResult()
+                .getResponseHeaders().getETag();
+
+        client.get().uri("/api/v1/markets/tickers")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void fetchesMarketsMissingFromTheSnapshotOnTheirOwn() {
+        client.get().uri("/api/v1/markets/tickers/usdtngn")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.last").isEqualTo("1600.0");
+    }
+
+    private static HttpServer startQuidax() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/api/v1/markets/tickers", ReactiveProfileTests::respond);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange) throws IOException {
+        long at = System.currentTimeMillis() / 1000;
+        String body = exchange.getRequestURI().getPath().endsWith("/tickers")
+                ? "{\"status\":\"success\",\"data\":{\"btcngn\":{\"at\":" + at
+                        + ",\"ticker\":{\"last\":\"1.5\",\"buy\":\"1.4\",\"sell\":\"1.6\"}}}}"
+                : "{\"status\":\"success\",\"data\":{\"at\":" + at
+                        + ",\"ticker\":{\"last\":\"1600.0\",\"buy\":\"1599.0\",\"sell\":\"1601.0\"}}}";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.codewithudo.cryptocurrencypriceticker;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Puts more concurrent requests than Tomcat's default 200 platform threads against a slow Quidax.
+ * With platform threads at most 200 of them can be waiting on Quidax at once; with virtual threads
+ * every request gets to block on its upstream call at the same time.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.threads.virtual.enabled=true",
+        "quidax.http.max-connections=1000",
+        "quidax.rate-limit.burst=1000",
+        "quidax.http.http2=false",
+        "quidax.http.read-timeout=10s",
+        "quidax.retry.timeout=10s"
+})
+class VirtualThreadLoadTests {
+
+    private static final int REQUESTS = 300;
+    private static final Duration UPSTREAM_LATENCY = Duration.ofSeconds(3);
+    private static final int PLATFORM_THREADS = 200;
+
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private static final HttpServer slowQuidax = startSlowQuidax();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void quidaxProperties(DynamicPropertyRegistry registry) {
+        registry.add("quidax.base-url", () -> "http://127.0.0.1:" + slowQuidax.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopSlowQuidax() {
+        slowQuidax.stop(0);
+    }
+
+    @Test
+    void handlesMoreConcurrentSlowUpstreamCallsThanThePlatformThreadPool() {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        List<CompletableFuture<HttpResponse<String>>> responses = fire(client, "market", REQUESTS);
+        CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).join();
+
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(200, response.join().statusCode());
+            assertTrue(response.join().body().contains("\"last\":\"1.5\""));
+        }
+        assertTrue(maxInFlight.get() > PLATFORM_THREADS,
+                "Only " + maxInFlight.get() + " requests were waiting on Quidax at once");
+    }
+
+    private List<CompletableFuture<HttpResponse<String>>> fire(HttpClient client, String prefix, int count) {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // A distinct market per request: the bulk snapshot doesn't have it, so each one is a
+            // separate (uncoalesced) blocking call to the slow upstream
+            URI uri = URI.create("http://localhost:" + port + "/api/v1/markets/tickers/" + prefix + i);
+            responses.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString()));
+        }
+        return responses;
+    }
+
+    private static HttpServer startSlowQuidax() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 2 * REQUESTS);
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.createContext("/api/v1/markets/tickers", VirtualThreadLoadTests::respondSlowly);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void respondSlowly(HttpExchange exchange) throws IOException {
+        String body;
+        if (exchange.getRequestURI().getPath().endsWith("/tickers")) {
+            // Bulk poll: answer quickly with nothing, so every lookup falls through to the per-market call
+            body = "{\"status\":\"success\",\"data\":{}}";
+        } else {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(UPSTREAM_LATENCY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            body = "{\"status\":\"success\",\"data\":{\"at\":" + System.currentTimeMillis() / 1000
+                    + ",\"ticker\":{\"last\":\"1.5\",\"buy\":\"1.4\",\"sell\":\"1.6\"}}}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        // The JDK server only keeps 200 idle connections and closes the rest under the client's feet
+        exchange.getResponseHeaders().add("Connection", "close");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.codewithudo.cryptocurrencypriceticker.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ContentEncodingsTests {
+
+    // In order of preference, as TickerRenderer builds them
+    private static final Set<String> AVAILABLE = new LinkedHashSet<>(List.of("br", "gzip"));
+
+    @Test
+    void picksTheHighestQualityAndBreaksTiesByOurPreference() {
+        assertEquals("br", ContentEncodings.choose("gzip, deflate, br", AVAILABLE));
+        assertEquals("gzip", ContentEncodings.choose("gzip", AVAILABLE));
+        assertEquals("gzip", ContentEncodings.choose("br;q=0.5, gzip;q=0.8", AVAILABLE));
+        assertEquals("br", ContentEncodings.choose("BR; q=0.9, gzip;q=0.9", AVAILABLE));
+    }
+
+    @Test
+    void honoursRefusalsAndWildcards() {
+        assertEquals("gzip", ContentEncodings.choose("br;q=0, gzip", AVAILABLE));
+        assertEquals("gzip", ContentEncodings.choose("br;Q=0, *", AVAILABLE));
+        assertEquals("br", ContentEncodings.choose("*", AVAILABLE));
+        assertEquals("gzip", ContentEncodings.choose("*;q=0.1, gzip;q=0.2", AVAILABLE));
+        assertNull(ContentEncodings.choose("*;q=0", AVAILABLE));
+        assertNull(ContentEncodings.choose("identity, deflate", AVAILABLE));
+    }
+
+    @Test
+    void treatsAMalformedQualityAsARefusal() {
+        assertEquals("gzip", ContentEncodings.choose("br;q=high, gzip", AVAILABLE));
+        assertNull(ContentEncodings.choose("gzip;q=", AVAILABLE));
+    }
+
+    @Test
+    void sendsIdentityWithoutAnAcceptEncodingOrVariants() {
+        assertNull(ContentEncodings.choose(null, AVAILABLE));
+        assertNull(ContentEncodings.choose(" ", AVAILABLE));
+        assertNull(ContentEncodings.choose("gzip", Set.of()));
+    }
+}
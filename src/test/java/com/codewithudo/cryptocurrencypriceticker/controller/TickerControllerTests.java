@@ -0,0 +1,194 @@
+package com.codewithudo.cryptocurrencypriceticker.controller;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.decoder.Decoder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The servlet endpoints against a stub Quidax: conditional requests, and what clients see once
+ * Quidax stops answering (the last tickers flagged stale while we have them, 503 with a
+ * Retry-After when we don't).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "quidax.refresh-interval-ms=3600000",
+        "quidax.cache.soft-ttl=100ms",
+        "quidax.cache.hard-ttl=200ms",
+        "quidax.retry.max-attempts=1",
+        "quidax.circuit-breaker.failure-threshold=1",
+        "quidax.circuit-breaker.open-duration=1m"
+})
+@AutoConfigureMockMvc
+// Taking Quidax down leaves the circuit open for the rest of the class, so those tests go last
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class TickerControllerTests {
+
+    // Fixed, so every poll returns the same tickers and the ETags only change when we mean them to
+    private static final long AT = System.currentTimeMillis() / 1000;
+
+    private static volatile boolean quidaxUp = true;
+
+    private static final HttpServer quidax = startQuidax();
+
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @DynamicPropertySource
+    static void quidaxProperties(DynamicPropertyRegistry registry) {
+        registry.add("quidax.base-url", () -> "http://127.0.0.1:" + quidax.getAddress().getPort());
+    }
+
+    @AfterEach
+    void bringQuidaxBack() {
+        quidaxUp = true;
+    }
+
+    @AfterAll
+    static void stopQuidax() {
+        quidax.stop(0);
+    }
+
+    @Test
+    void ifNoneMatchComparesWeaklyAndAcceptsListsAndAnyTag() throws Exception {
+        String etag = mvc.perform(get("/api/v1/markets/tickers"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue(etag.startsWith("W/\""), etag);
+        String strong = etag.substring(2);
+
+        for (String ifNoneMatch : List.of(etag, strong, "\"other\", " + etag, "W/\"other\",  " + strong, "*")) {
+            mvc.perform(get("/api/v1/markets/tickers").header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.ETAG, etag))
+                    .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                    .andExpect(content().bytes(new byte[0]));
+        }
+        mvc.perform(get("/api/v1/markets/tickers").header(HttpHeaders.IF_NONE_MATCH, "W/\"other\", \"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.btcngn.last").value("1.5"));
+
+        // The single-market endpoint has its own per-market tag
+        String marketEtag = mvc.perform(get("/api/v1/markets/tickers/btcngn"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mvc.perform(get("/api/v1/markets/tickers/btcngn").header(HttpHeaders.IF_NONE_MATCH, marketEtag))
+                .andExpect(status().isNotModified());
+        mvc.perform(get("/api/v1/markets/tickers/btcngn").header(HttpHeaders.IF_NONE_MATCH, "W/\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, marketEtag));
+    }
+
+    @Test
+    void servesCompressedVariantsThatDecodeToTheSameJson() throws Exception {
+        byte[] plain = mvc.perform(get("/api/v1/markets/tickers").header(HttpHeaders.ACCEPT_ENCODING, "identity"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        byte[] gzipped = mvc.perform(get("/api/v1/markets/tickers").header(HttpHeaders.ACCEPT_ENCODING, "br;q=0, gzip"))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            assertArrayEquals(plain, in.readAllBytes());
+        }
+
+        assumeTrue(Brotli4jLoader.isAvailable(), "Brotli isn't available on this platform");
+        byte[] brotli = mvc.perform(get("/api/v1/markets/tickers").header(HttpHeaders.ACCEPT_ENCODING, "gzip, br"))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "br"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertArrayEquals(plain, Decoder.decompress(brotli).getDecompressedData());
+    }
+
+    @Test
+    @Order(Integer.MAX_VALUE - 1)
+    void servesTheLastTickersWithAStaleWarningWhenQuidaxIsDown() throws InterruptedException {
+        assertEquals(HttpStatus.OK, client.getForEntity("/api/v1/markets/tickers/btcngn", String.class).getStatusCode());
+
+        quidaxUp = false;
+        Thread.sleep(300);
+        ResponseEntity<String> response = client.getForEntity("/api/v1/markets/tickers/btcngn", String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody().contains("\"last\":\"1.5\""));
+        assertEquals("110 - \"Response is Stale\"", response.getHeaders().getFirst(HttpHeaders.WARNING));
+    }
+
+    @Test
+    @Order(Integer.MAX_VALUE)
+    void answers503WithRetryAfterWhenThereIsNothingToServe() {
+        quidaxUp = false;
+        // Opens the circuit
+        client.getForEntity("/api/v1/markets/tickers/ethngn", String.class);
+
+        ResponseEntity<String> response = client.getForEntity("/api/v1/markets/tickers/ethngn", String.class);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        long retryAfter = Long.parseLong(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertTrue(retryAfter > 0 && retryAfter <= 60);
+    }
+
+    private static HttpServer startQuidax() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/api/v1/markets/tickers", TickerControllerTests::respond);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange) throws IOException {
+        if (!quidaxUp) {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = ("{\"status\":\"success\",\"data\":{\"btcngn\":{\"at\":" + AT
+                + ",\"ticker\":{\"last\":\"1.5\",\"buy\":\"1.4\",\"sell\":\"1.6\"}}}}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.codewithudo.cryptocurrencypriceticker.controller;
+
+import com.codewithudo.cryptocurrencypriceticker.service.TickerSnapshotService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The live feeds and batch lookups against a stub Quidax whose prices change between polls. The
+ * scheduled refresher only runs once at startup; tests poll by calling {@code refresh()} themselves.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "quidax.refresh-interval-ms=3600000",
+        "quidax.max-batch-markets=100"
+})
+class TickerFeedTests {
+
+    private static final long AT = System.currentTimeMillis() / 1000;
+
+    private static volatile String btcPrice = "1.5";
+
+    private static final HttpServer quidax = startQuidax();
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TickerSnapshotService tickerSnapshotService;
+
+    @DynamicPropertySource
+    static void quidaxProperties(DynamicPropertyRegistry registry) {
+        registry.add("quidax.base-url", () -> "http://127.0.0.1:" + quidax.getAddress().getPort());
+    }
+
+    @AfterEach
+    void resetPrices() {
+        btcPrice = "1.5";
+        tickerSnapshotService.refresh();
+    }
+
+    @AfterAll
+    static void stopQuidax() {
+        quidax.stop(0);
+    }
+
+    @Test
+    void streamsTheCurrentTickersThenOnlyWhatChanged() throws Exception {
+        tickerSnapshotService.refresh();
+        HttpResponse<Stream<String>> response = http.send(
+                HttpRequest.newBuilder(uri("http", "/api/v1/markets/tickers/stream")).build(),
+                HttpResponse.BodyHandlers.ofLines());
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        Thread.ofVirtual().start(() -> response.body()
+                .filter(line -> line.startsWith("data:"))
+                .forEach(line -> events.add(line.substring("data:".length()))));
+
+        try {
+            JsonNode first = objectMapper.readTree(next(events));
+            assertEquals(List.of("btcngn", "ethngn"), fieldNames(first));
+            assertEquals("1.5", first.get("btcngn").get("last").asText());
+
+            btcPrice = "1.6";
+            tickerSnapshotService.refresh();
+
+            JsonNode delta = objectMapper.readTree(next(events));
+            assertEquals(List.of("btcngn"), fieldNames(delta));
+            assertEquals("1.6", delta.get("btcngn").get("last").asText());
+        } finally {
+            response.body().close();
+        }
+    }
+
+    @Test
+    void sendsWebSocketSubscribersTheirMarketsThenOnlyWhatChanged() throws Exception {
+        tickerSnapshotService.refresh();
+        BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+        WebSocket socket = http.newWebSocketBuilder()
+                .buildAsync(uri("ws", "/api/v1/markets/ws"), new WebSocket.Listener() {
+                    private final StringBuilder text = new StringBuilder();
+
+                    @Override
+                    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                        text.append(data);
+                        if (last) {
+                            messages.add(text.toString());
+                            text.setLength(0);
+                        }
+                        webSocket.request(1);
+                        return null;
+                    }
+                })
+                .get(5, TimeUnit.SECONDS);
+
+        try {
+            socket.sendText("{\"action\":\"subscribe\",\"markets\":[\"btcngn\",\"btcngn\"]}", true).get(5, TimeUnit.SECONDS);
+            JsonNode first = objectMapper.readTree(next(messages));
+            assertEquals("tickers", first.get("type").asText());
+            assertEquals(List.of("btcngn"), fieldNames(first.get("data")));
+            long version = first.get("version").asLong();
+
+            btcPrice = "1.6";
+            tickerSnapshotService.refresh();
+
+            JsonNode delta = objectMapper.readTree(next(messages));
+            assertTrue(delta.get("version").asLong() > version);
+            assertEquals(List.of("btcngn"), fieldNames(delta.get("data")));
+            assertEquals("1.6", delta.get("data").get("btcngn").get("last").asText());
+        } finally {
+            socket.abort();
+        }
+    }
+
+    @Test
+    void returnsRequestedMarketsInTheOrderAskedLeavingOutOnesQuidaxDoesNotHave() throws Exception {
+        HttpResponse<String> response = get("/api/v1/markets/tickers?markets=usdtngn,btcngn,nopengn,ethngn");
+
+        assertEquals(200, response.statusCode());
+        JsonNode tickers = objectMapper.readTree(response.body());
+        assertEquals(List.of("usdtngn", "btcngn", "ethngn"), fieldNames(tickers));
+        assertEquals("1600.0", tickers.get("usdtngn").get("last").asText());
+    }
+
+    @Test
+    void rejectsMoreMarketsThanTheBatchLimit() throws Exception {
+        // Checked before anything is fetched; repeats don't count towards the limit
+        String tooMany = IntStream.rangeClosed(0, 100).mapToObj(i -> "m" + i + "ngn").collect(Collectors.joining(","));
+        assertEquals(400, get("/api/v1/markets/tickers?markets=" + tooMany).statusCode());
+
+        String repeated = String.join(",", Collections.nCopies(101, "btcngn"));
+        assertEquals(200, get("/api/v1/markets/tickers?markets=" + repeated).statusCode());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return http.send(HttpRequest.newBuilder(uri("http", path)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String scheme, String path) {
+        return URI.create(scheme + "://127.0.0.1:" + port + path);
+    }
+
+    private static String next(BlockingQueue<String> queue) throws InterruptedException {
+        String next = queue.poll(5, TimeUnit.SECONDS);
+        assertNotNull(next, "Nothing arrived within 5s");
+        return next;
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    private static HttpServer startQuidax() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/api/v1/markets/tickers", TickerFeedTests::respond);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String body;
+        if (path.endsWith("/tickers")) {
+            body = "{\"status\":\"success\",\"data\":{\"btcngn\":" + market(btcPrice) + ",\"ethngn\":" + market("10.0") + "}}";
+        } else if (path.endsWith("/usdtngn")) {
+            body = "{\"status\":\"success\",\"data\":" + market("1600.0") + "}";
+        } else {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String market(String price) {
+        return "{\"at\":" + AT + ",\"ticker\":{\"last\":\"" + price + "\",\"buy\":\"" + price + "\",\"sell\":\"" + price + "\"}}";
+    }
+}
@@ -0,0 +1,75 @@
+package com.codewithudo.cryptocurrencypriceticker.dto;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NumericTickerTests {
+
+    @Test
+    void parsesPricesAtTheirLargestScaleAndVolumeAtItsOwn() {
+        NumericTicker numeric = NumericTicker.of(
+                new Ticker("178876454.0", "184179782.05", "0.7871311", "179333769.0", "180077100.0", "179447144.0"));
+
+        assertEquals(2, numeric.getScale());
+        assertEquals(17887645400L, numeric.getLow());
+        assertEquals(17944714400L, numeric.getBid());
+        assertEquals("179333769.00", FixedPoint.format(numeric.getPrice(), numeric.getScale()));
+        assertEquals(7, numeric.getVolumeScale());
+        assertEquals(7871311L, numeric.getVolume());
+    }
+
+    @Test
+    void keepsTinyPricesExactNextToAHugeVolume() {
+        NumericTicker numeric = NumericTicker.of(
+                new Ticker("0.00001200", "0.00001300", "1234567890123.4567", "0.00001234", "0.00001240", "0.00001230"));
+
+        assertEquals(8, numeric.getScale());
+        assertEquals(1234L, numeric.getPrice());
+        assertEquals(1230L, numeric.getBid());
+        // 1234567890123.4567 doesn't fit at 8 places, but it does at its own 4
+        assertEquals(4, numeric.getVolumeScale());
+        assertEquals(12345678901234567L, numeric.getVolume());
+
+        // Only the volume gives up decimals when even its own scale overflows
+        NumericTicker huge = NumericTicker.of(new Ticker("1", "1", "9223372036854775.12345", "0.00001234", "1", "1"));
+        assertEquals(8, huge.getScale());
+        assertEquals(1234L, huge.getPrice());
+        assertEquals(3, huge.getVolumeScale());
+    }
+
+    @Test
+    void keepsAtLeastTheRequestedScales() {
+        NumericTicker numeric = NumericTicker.of(new Ticker("1", "2", "3", "1.5", "1.6", "1.4"), 4, 2);
+
+        assertEquals(4, numeric.getScale());
+        assertEquals(15000L, numeric.getPrice());
+        assertEquals(20000L, numeric.getHigh());
+        assertEquals(2, numeric.getVolumeScale());
+        assertEquals(300L, numeric.getVolume());
+    }
+
+    @Test
+    void treatsMissingValuesAsZeroAndRejectsGarbage() {
+        NumericTicker numeric = NumericTicker.of(new Ticker(null, "", "0", "-0.25", null, null));
+        assertEquals(-25L, numeric.getPrice());
+        assertEquals(0L, numeric.getLow());
+
+        assertThrows(NumberFormatException.class, () -> NumericTicker.of(new Ticker("1e5", "1", "1", "1", "1", "1")));
+    }
+
+    @Test
+    void comparesAndFormatsAcrossScales() {
+        assertTrue(FixedPoint.compare(15, 1, 149, 2) > 0);
+        assertEquals(0, FixedPoint.compare(1500, 3, 15, 1));
+        assertTrue(FixedPoint.compare(-5, 1, 3, 2) < 0);
+        // Far enough apart in scale that rescaling either one would overflow
+        assertTrue(FixedPoint.compare(Long.MAX_VALUE / 10, 0, 1, 18) > 0);
+        assertTrue(FixedPoint.compare(1, 18, -Long.MAX_VALUE / 10, 0) > 0);
+        assertEquals("0.05", FixedPoint.format(5, 2));
+        assertEquals("-1.50", FixedPoint.format(-150, 2));
+        assertEquals(12L, FixedPoint.parse("1.2345", 1));
+    }
+}
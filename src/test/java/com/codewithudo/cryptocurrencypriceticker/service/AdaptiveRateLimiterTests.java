@@ -0,0 +1,53 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveRateLimiterTests {
+
+    @Test
+    void callsBeyondTheBurstFailOnceTheyWouldWaitTooLong() throws Exception {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test", 1, 2, 0.1, 0.5, 0, Duration.ZERO);
+
+        limiter.acquire();
+        limiter.acquire();
+        RateLimitedException e = assertThrows(RateLimitedException.class, limiter::acquire);
+        assertTrue(e.getRetryAfter().compareTo(Duration.ZERO) > 0);
+    }
+
+    @Test
+    void tooManyRequestsBacksOffAndRetryAfterPausesCalls() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test", 10, 10, 1, 0.5, 0, Duration.ofSeconds(1));
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "30");
+
+        limiter.onResponse(HttpStatus.TOO_MANY_REQUESTS, headers);
+        assertEquals(5, limiter.getPermitsPerSecond(), 0.01);
+        // Paused for 30s, well past the 1s we're willing to wait
+        assertThrows(RateLimitedException.class, limiter::acquire);
+
+        // A second 429 from the same burst doesn't halve the rate again
+        limiter.onResponse(HttpStatus.TOO_MANY_REQUESTS, new HttpHeaders());
+        assertEquals(5, limiter.getPermitsPerSecond(), 0.01);
+    }
+
+    @Test
+    void parsesRetryAfterSecondsAndDates() {
+        HttpHeaders headers = new HttpHeaders();
+        assertNull(AdaptiveRateLimiter.retryAfter(headers));
+
+        headers.set(HttpHeaders.RETRY_AFTER, "7");
+        assertEquals(Duration.ofSeconds(7), AdaptiveRateLimiter.retryAfter(headers));
+
+        headers.set(HttpHeaders.RETRY_AFTER, "Wed, 21 Oct 2015 07:28:00 GMT");
+        assertEquals(Duration.ZERO, AdaptiveRateLimiter.retryAfter(headers));
+    }
+}
@@ -0,0 +1,133 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.config.QuidaxProperties;
+import com.codewithudo.cryptocurrencypriceticker.dto.BestBidOffer;
+import com.codewithudo.cryptocurrencypriceticker.dto.MarketData;
+import com.codewithudo.cryptocurrencypriceticker.dto.Ticker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BestBidOfferServiceTests {
+
+    private final QuidaxProperties properties = new QuidaxProperties();
+    private final ExchangeRegistry registry = new ExchangeRegistry("quidax",
+            List.of(new NamedExchange("quidax"), new NamedExchange("luno")), properties.getCache()::hardTtlFor);
+    private final BestBidOfferService service = new BestBidOfferService(registry, properties);
+    private final TickerRenderer renderer = new TickerRenderer(new ObjectMapper());
+    private TickerSnapshot snapshot;
+
+    @AfterEach
+    void shutdown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void picksTheHighestBidAndLowestAskAcrossExchanges() {
+        publish(Map.of(
+                "btcngn", market("100.5", "101"),
+                "luno:btcngn", market("100.75", "101.25"),
+                "ethngn", market("10", "11")));
+
+        BestBidOffer btc = service.get("btcngn");
+        assertEquals("100.75", btc.getBid());
+        assertEquals("luno", btc.getBidExchange());
+        assertEquals("101", btc.getAsk());
+        assertEquals("quidax", btc.getAskExchange());
+        assertEquals("quidax", service.get("ethngn").getBidExchange());
+        assertNull(service.get("luno:btcngn"));
+    }
+
+    @Test
+    void updatesOnlyMarketsThatChangedAndDropsOnesNoLongerQuoted() {
+        publish(Map.of("btcngn", market("100", "101"), "ethngn", market("10", "11")));
+        BestBidOffer eth = service.get("ethngn");
+
+        publish(Map.of("btcngn", market("100", "101"), "luno:btcngn", market("100.5", "100.9")));
+
+        assertEquals("luno", service.get("btcngn").getBidExchange());
+        assertEquals("luno", service.get("btcngn").getAskExchange());
+        assertNull(service.get("ethngn"));
+        assertEquals(1, eth.getVersion());
+    }
+
+    @Test
+    void comparesVenuesWhosePricesAreFarApartInScale() {
+        publish(Map.of("btcngn", market("92233720368547758", "92233720368547759"),
+                "luno:btcngn", market("0.000000000000000001", "1")));
+
+        assertEquals("quidax", service.get("btcngn").getBidExchange());
+        assertEquals("luno", service.get("btcngn").getAskExchange());
+    }
+
+    @Test
+    void leavesOutQuotesPastTheirHardTtl() {
+        QuidaxProperties.Ttl ttl = new QuidaxProperties.Ttl();
+        ttl.setHardTtl(Duration.ofMillis(500));
+        properties.getCache().getMarkets().put("luno:btcngn", ttl);
+        // A quiet market's "at" stays old however often we fetch it; only the fetch counts
+        MarketData quiet = market("100.5", "101");
+        quiet.setAt(System.currentTimeMillis() / 1000 - 3600);
+        publish(Map.of("btcngn", quiet, "luno:btcngn", market("100.75", "100.9")), System.currentTimeMillis() - 1000);
+
+        assertEquals("quidax", service.get("btcngn").getBidExchange());
+        assertEquals("quidax", service.get("btcngn").getAskExchange());
+    }
+
+    @Test
+    void recomputesOnceAQuoteItWasBuiltFromExpires() throws InterruptedException {
+        QuidaxProperties.Ttl ttl = new QuidaxProperties.Ttl();
+        ttl.setHardTtl(Duration.ofMillis(100));
+        properties.getCache().getMarkets().put("luno:btcngn", ttl);
+        publish(Map.of("btcngn", market("100.5", "101"), "luno:btcngn", market("100.75", "100.9")));
+        assertEquals("luno", service.get("btcngn").getBidExchange());
+
+        // No newer snapshot, luno's quote just gets old
+        Thread.sleep(200);
+
+        assertEquals("quidax", service.get("btcngn").getBidExchange());
+        assertEquals("quidax", service.get("btcngn").getAskExchange());
+    }
+
+    private void publish(Map<String, MarketData> markets) {
+        publish(markets, System.currentTimeMillis());
+    }
+
+    private void publish(Map<String, MarketData> markets, long fetchedAt) {
+        TickerSnapshot previous = snapshot;
+        snapshot = new TickerSnapshot(previous == null ? 1 : previous.getVersion() + 1, fetchedAt,
+                new LinkedHashMap<>(markets), previous, renderer);
+        service.onSnapshotPublished(new TickerSnapshotPublishedEvent(previous, snapshot));
+    }
+
+    private static MarketData market(String bid, String ask) {
+        MarketData marketData = new MarketData();
+        marketData.setTicker(new Ticker("1", "2", "3", bid, ask, bid));
+        return marketData;
+    }
+
+    private record NamedExchange(String name) implements ExchangeAdapter {
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Map<String, MarketData> getMarkets() {
+            return Map.of();
+        }
+
+        @Override
+        public MarketData getMarket(String market) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.config.QuidaxProperties;
+import com.codewithudo.cryptocurrencypriceticker.dto.Candle;
+import com.codewithudo.cryptocurrencypriceticker.dto.NumericTicker;
+import com.codewithudo.cryptocurrencypriceticker.dto.Ticker;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CandleServiceTests {
+
+    private final CandleService candles = new CandleService(new QuidaxProperties());
+
+    @Test
+    void aggregatesTicksIntoBars() {
+        candles.record("btcngn", 60_000, ticker("10.0", "100.0"));
+        candles.record("btcngn", 70_000, ticker("12.5", "101.5"));
+        candles.record("btcngn", 80_000, ticker("9.0", "101.0"));
+        candles.record("btcngn", 110_000, ticker("11.0", "103.0"));
+        candles.record("btcngn", 120_000, ticker("11.5", "104.0"));
+
+        List<Candle> bars = candles.getCandles("btcngn", CandleInterval.ONE_MINUTE, null, null);
+        assertEquals(List.of(60L, 120L), bars.stream().map(Candle::getTime).toList());
+        Candle first = bars.get(0);
+        assertEquals("10.0", first.getOpen());
+        assertEquals("12.5", first.getHigh());
+        assertEquals("9.0", first.getLow());
+        assertEquals("11.0", first.getClose());
+        // Rises of the 24h volume only: 1.5 + 0 + 2.0
+        assertEquals("3.5", first.getVolume());
+        assertEquals("1.0", bars.get(1).getVolume());
+
+        List<Candle> hourly = candles.getCandles("btcngn", CandleInterval.ONE_HOUR, null, null);
+        assertEquals(1, hourly.size());
+        assertEquals("11.5", hourly.get(0).getClose());
+        assertEquals("4.5", hourly.get(0).getVolume());
+    }
+
+    @Test
+    void keepsTheFinerScaleWithinABar() {
+        candles.record("ethngn", 0, ticker("2.5", "1.0"));
+        candles.record("ethngn", 1_000, ticker("2.125", "1.0"));
+
+        Candle bar = candles.getCandles("ethngn", CandleInterval.FIVE_MINUTES, null, null).get(0);
+        assertEquals("2.500", bar.getOpen());
+        assertEquals("2.125", bar.getLow());
+    }
+
+    @Test
+    void survivesAVolumeThatNoLongerFitsAtTheNewScale() {
+        candles.record("dogengn", 0, ticker("1.0", "92233720368547758"));
+        // Volume rescaled to 8 places would overflow a long; the window rolled over, so nothing traded
+        candles.record("dogengn", 1_000, ticker("1.0", "0.00000001"));
+        candles.record("dogengn", 2_000, ticker("1.0", "0.00000003"));
+
+        Candle bar = candles.getCandles("dogengn", CandleInterval.ONE_MINUTE, null, null).get(0);
+        assertEquals("0.00000002", bar.getVolume());
+    }
+
+    @Test
+    void filtersByRangeAndKnowsItsIntervals() {
+        for (int i = 0; i < 5; i++) {
+            candles.record("btcngn", i * 60_000L, ticker(i + ".0", "1.0"));
+        }
+
+        assertEquals(List.of(60L, 120L), candles.getCandles("btcngn", CandleInterval.ONE_MINUTE, 60L, 120L)
+                .stream().map(Candle::getTime).toList());
+        assertEquals(List.of(), candles.getCandles("ltcngn", CandleInterval.ONE_MINUTE, null, null));
+        assertEquals(CandleInterval.ONE_DAY, CandleInterval.of("1d"));
+        assertNull(CandleInterval.of("2m"));
+    }
+
+    private static NumericTicker ticker(String price, String volume) {
+        return NumericTicker.of(new Ticker(price, price, volume, price, price, price));
+    }
+}
@@ -0,0 +1,104 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTests {
+
+    @Test
+    void opensAfterConsecutiveFailuresAndFailsFast() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, Duration.ofMinutes(1), 1);
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ResourceAccessException.class, () -> breaker.execute(() -> {
+                calls.incrementAndGet();
+                throw new ResourceAccessException("connection refused");
+            }, result -> false));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        CircuitOpenException e = assertThrows(CircuitOpenException.class,
+                () -> breaker.execute(calls::incrementAndGet, result -> false));
+        assertEquals(3, calls.get());
+        assertTrue(e.getRetryAfter().toSeconds() > 0);
+    }
+
+    @Test
+    void clientErrorsDoNotCountAgainstUpstream() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, Duration.ofMinutes(1), 1);
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(HttpClientErrorException.class, () -> breaker.execute(() -> {
+                throw HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null);
+            }, result -> false));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void successfulProbeClosesTheCircuit() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ZERO, 1);
+
+        breaker.execute(() -> "", String::isEmpty);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        assertEquals("ok", breaker.execute(() -> "ok", String::isEmpty));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void onlyAProbeClosesTheCircuit() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ZERO, 1);
+        Sinks.One<String> late = Sinks.one();
+        Sinks.One<String> probe = Sinks.one();
+
+        // Let through while closed, answers after the circuit has opened and a probe is out
+        breaker.execute(late.asMono(), String::isEmpty).subscribe();
+        breaker.execute(() -> "", String::isEmpty);
+        breaker.execute(probe.asMono(), String::isEmpty).subscribe();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        late.tryEmitValue("ok");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        probe.tryEmitValue("ok");
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void ourOwnRateLimitNeitherClosesNorOpensTheCircuit() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, Duration.ZERO, 1);
+        RateLimitedException rateLimited = new RateLimitedException("test", Duration.ofSeconds(1));
+
+        // Closed: a rate-limited call between two failures doesn't reset the count
+        assertThrows(ResourceAccessException.class, () -> breaker.execute(() -> {
+            throw new ResourceAccessException("connection refused");
+        }, result -> false));
+        assertThrows(RateLimitedException.class, () -> breaker.execute(() -> {
+            throw rateLimited;
+        }, result -> false));
+        assertThrows(ResourceAccessException.class, () -> breaker.execute(() -> {
+            throw new ResourceAccessException("connection refused");
+        }, result -> false));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Half open: the rate-limited probe leaves it half open and hands its slot to the next probe
+        assertThrows(RateLimitedException.class, () -> breaker.execute(() -> {
+            throw rateLimited;
+        }, result -> false));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals("ok", breaker.execute(() -> "ok", String::isEmpty));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
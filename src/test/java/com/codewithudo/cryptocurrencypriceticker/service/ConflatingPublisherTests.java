@@ -0,0 +1,125 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConflatingPublisherTests {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void collapsesUpdatesThatArriveWhileASendIsInFlight() throws Exception {
+        CountDownLatch firstSendStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstSend = new CountDownLatch(1);
+        CountDownLatch secondSendDone = new CountDownLatch(1);
+        List<Long> versions = new CopyOnWriteArrayList<>();
+        List<Map<String, Integer>> batches = new CopyOnWriteArrayList<>();
+
+        ConflatingPublisher<Integer> publisher = new ConflatingPublisher<>(executor, (version, updates) -> {
+            versions.add(version);
+            batches.add(Map.copyOf(updates));
+            if (versions.size() == 1) {
+                firstSendStarted.countDown();
+                awaitQuietly(releaseFirstSend);
+            } else {
+                secondSendDone.countDown();
+            }
+        }, e -> { });
+
+        publisher.publish(1, Map.of("btcngn", 1));
+        assertTrue(firstSendStarted.await(5, TimeUnit.SECONDS));
+
+        // The subscriber is stuck writing version 1; these three should reach it as one batch
+        publisher.publish(2, Map.of("btcngn", 2, "ethngn", 1));
+        publisher.publish(3, Map.of("btcngn", 3));
+        publisher.publish(4, Map.of("ethngn", 2));
+        releaseFirstSend.countDown();
+
+        assertTrue(secondSendDone.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1L, 4L), versions);
+        assertEquals(Map.of("btcngn", 1), batches.get(0));
+        assertEquals(Map.of("btcngn", 3, "ethngn", 2), batches.get(1));
+    }
+
+    @Test
+    void dropsUpdatesOlderThanOnesAlreadyPublished() throws Exception {
+        CountDownLatch firstSendStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstSend = new CountDownLatch(1);
+        CountDownLatch secondSendDone = new CountDownLatch(1);
+        List<Long> versions = new CopyOnWriteArrayList<>();
+        List<Map<String, Integer>> batches = new CopyOnWriteArrayList<>();
+
+        ConflatingPublisher<Integer> publisher = new ConflatingPublisher<>(executor, (version, updates) -> {
+            versions.add(version);
+            batches.add(Map.copyOf(updates));
+            if (versions.size() == 1) {
+                firstSendStarted.countDown();
+                awaitQuietly(releaseFirstSend);
+            } else {
+                secondSendDone.countDown();
+            }
+        }, e -> { });
+
+        publisher.publish(1, Map.of("btcngn", 1));
+        assertTrue(firstSendStarted.await(5, TimeUnit.SECONDS));
+
+        // Version 2 arrives late, after 3 is already waiting
+        publisher.publish(3, Map.of("btcngn", 3));
+        publisher.publish(2, Map.of("btcngn", 2, "ethngn", 2));
+        releaseFirstSend.countDown();
+
+        assertTrue(secondSendDone.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1L, 3L), versions);
+        assertEquals(Map.of("btcngn", 3), batches.get(1));
+    }
+
+    @Test
+    void stopsAndReportsWhenTheSinkFails() throws Exception {
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        List<Long> versions = new CopyOnWriteArrayList<>();
+
+        ConflatingPublisher<Integer> publisher = new ConflatingPublisher<>(executor, (version, updates) -> {
+            versions.add(version);
+            throw new IOException("client went away");
+        }, e -> {
+            failure.set(e);
+            failed.countDown();
+        });
+
+        publisher.publish(1, Map.of("btcngn", 1));
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        publisher.publish(2, Map.of("btcngn", 2));
+        executor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+
+        assertEquals("client went away", failure.get().getMessage());
+        assertEquals(List.of(1L), versions);
+        assertTrue(publisher.isIdle());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.dto.MarketData;
+import com.codewithudo.cryptocurrencypriceticker.dto.Ticker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExchangeRegistryTests {
+
+    private final FakeExchange quidax = new FakeExchange("quidax", Map.of("btcngn", market("100")));
+    private final FakeExchange luno = new FakeExchange("luno", Map.of("xbtngn", market("101")));
+    private volatile Duration hardTtl = Duration.ofMinutes(1);
+    private final ExchangeRegistry registry = new ExchangeRegistry("quidax", List.of(quidax, luno), market -> hardTtl);
+
+    @AfterEach
+    void shutdown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void prefixesMarketsOfEveryExchangeButThePrimary() {
+        Map<String, MarketData> markets = registry.getMarkets();
+
+        assertEquals(List.of("btcngn", "luno:xbtngn"), List.copyOf(markets.keySet()));
+        assertEquals("101", registry.getMarket("luno:xbtngn").getTicker().getPrice());
+        assertEquals("100", registry.getMarket("btcngn").getTicker().getPrice());
+        // Not a known exchange, so it's a primary market name that happens to contain a colon
+        assertNull(registry.getMarket("kraken:xbtngn"));
+    }
+
+    @Test
+    void keepsTheLastTickersOfAnExchangeThatFails() {
+        registry.getMarkets();
+        luno.failing.set(true);
+
+        assertEquals(List.of("btcngn", "luno:xbtngn"), List.copyOf(registry.getMarkets().keySet()));
+
+        quidax.failing.set(true);
+        assertThrows(ResourceAccessException.class, registry::getMarkets);
+    }
+
+    @Test
+    void dropsAFailingExchangesTickersOnceTheyPassTheirHardTtl() throws InterruptedException {
+        hardTtl = Duration.ofMillis(100);
+        registry.getMarkets();
+        luno.failing.set(true);
+        Thread.sleep(200);
+
+        assertEquals(List.of("btcngn"), List.copyOf(registry.getMarkets().keySet()));
+    }
+
+    @Test
+    void carriesOnPastAnAdapterThatBreaks() {
+        registry.getMarkets();
+        luno.broken.set(true);
+
+        assertEquals(List.of("btcngn", "luno:xbtngn"), List.copyOf(registry.getMarkets().keySet()));
+
+        quidax.broken.set(true);
+        assertThrows(RestClientException.class, registry::getMarkets);
+    }
+
+    @Test
+    void fetchesIndividualMarketsFromTheirOwnExchange() {
+        Map<String, MarketData> fetched = registry.getMarkets(List.of("luno:xbtngn", "btcngn", "unknown"));
+
+        assertEquals(Map.of("btcngn", "100", "luno:xbtngn", "101"), Map.of(
+                "btcngn", fetched.get("btcngn").getTicker().getPrice(),
+                "luno:xbtngn", fetched.get("luno:xbtngn").getTicker().getPrice()));
+        // The primary exchange answered that it doesn't have it
+        assertTrue(fetched.containsKey("unknown"));
+        assertNull(fetched.get("unknown"));
+    }
+
+    private static MarketData market(String price) {
+        Ticker ticker = new Ticker();
+        ticker.setPrice(price);
+        MarketData marketData = new MarketData();
+        marketData.setTicker(ticker);
+        return marketData;
+    }
+
+    private static class FakeExchange implements ExchangeAdapter {
+        private final String name;
+        private final Map<String, MarketData> markets;
+        private final AtomicBoolean failing = new AtomicBoolean();
+        private final AtomicBoolean broken = new AtomicBoolean();
+
+        FakeExchange(String name, Map<String, MarketData> markets) {
+            this.name = name;
+            this.markets = markets;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Map<String, MarketData> getMarkets() {
+            if (failing.get()) {
+                throw new ResourceAccessException(name + " is down");
+            }
+            if (broken.get()) {
+                throw new IllegalStateException(name + " sent something we can't parse");
+            }
+            return markets;
+        }
+
+        @Override
+        public MarketData getMarket(String market) {
+            return getMarkets().get(market);
+        }
+    }
+}
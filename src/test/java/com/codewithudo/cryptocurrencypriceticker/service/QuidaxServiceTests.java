@@ -0,0 +1,106 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.config.QuidaxProperties;
+import com.codewithudo.cryptocurrencypriceticker.dto.MarketData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuidaxServiceTests {
+
+    private static final Duration LATENCY = Duration.ofMillis(200);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private HttpServer quidax;
+    private QuidaxService quidaxService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        quidax = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 100);
+        quidax.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        quidax.createContext("/api/v1/markets/tickers/", this::respond);
+        quidax.start();
+
+        QuidaxProperties properties = new QuidaxProperties();
+        properties.setBaseUrl("http://127.0.0.1:" + quidax.getAddress().getPort());
+        properties.getHttp().setFanOutParallelism(4);
+        properties.getHttp().setFanOutTimeout(Duration.ofSeconds(1));
+        quidaxService = new QuidaxService(new RestTemplate(), properties, new QuidaxTickerParser(new ObjectMapper()),
+                new CircuitBreaker("quidax", 100, Duration.ofSeconds(10), 1),
+                new UpstreamRetry(1, Duration.ZERO, Duration.ZERO, Duration.ofSeconds(10), false, 0.95, Duration.ZERO));
+    }
+
+    @AfterEach
+    void tearDown() {
+        quidaxService.shutdown();
+        quidax.stop(0);
+    }
+
+    @Test
+    void fetchesMarketsConcurrentlyUpToTheParallelismLimit() {
+        List<String> markets = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            markets.add("market" + i);
+        }
+
+        long start = System.nanoTime();
+        Map<String, MarketData> fetched = quidaxService.getMarkets(markets);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertEquals(markets, new ArrayList<>(fetched.keySet()));
+        assertEquals(4, maxInFlight.get());
+        // Three rounds of four, not twelve calls one after the other
+        assertTrue(elapsed.compareTo(LATENCY.multipliedBy(12)) < 0, "Took " + elapsed.toMillis() + "ms");
+    }
+
+    @Test
+    void answersWithWhateverArrivedByTheDeadline() {
+        Map<String, MarketData> fetched = quidaxService.getMarkets(List.of("btcngn", "slowngn", "brokenngn", "ethngn"));
+
+        assertEquals(List.of("btcngn", "ethngn"), new ArrayList<>(fetched.keySet()));
+        assertFalse(fetched.containsKey("slowngn"));
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        String market = exchange.getRequestURI().getPath().substring("/api/v1/markets/tickers/".length());
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(market.equals("slowngn") ? LATENCY.multipliedBy(20) : LATENCY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+
+        int status = market.equals("brokenngn") ? 500 : 200;
+        byte[] body = ("{\"status\":\"success\",\"data\":{\"at\":1700000000,\"ticker\":{\"last\":\"1.5\"}}}")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        } catch (IOException e) {
+            // The client gave up on this one
+        }
+    }
+}
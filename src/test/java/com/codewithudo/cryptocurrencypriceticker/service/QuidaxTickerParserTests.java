@@ -0,0 +1,57 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.dto.MarketData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuidaxTickerParserTests {
+
+    private final QuidaxTickerParser parser = new QuidaxTickerParser(new ObjectMapper());
+
+    @Test
+    void readsMarketsInOrderAndSkipsUnknownFields() throws IOException {
+        Map<String, MarketData> markets = parse("""
+                {"status":"success","message":"ok","data":{
+                  "btcngn":{"at":1700000000,"ticker":{"low":"1.0","high":"2.0","vol":"3.5","last":"1.5",
+                            "sell":"1.6","buy":"1.4","open":"1.1"}},
+                  "ethngn":{"at":1700000001,"extra":{"nested":[1,2]},"ticker":{"last":"9.0"}},
+                  "nonengn":{"at":1700000002,"ticker":null}
+                }}
+                """);
+
+        assertEquals(2, markets.size());
+        assertEquals("btcngn", markets.keySet().iterator().next());
+
+        MarketData btc = markets.get("btcngn");
+        assertEquals(1700000000L, btc.getAt());
+        assertEquals("3.5", btc.getTicker().getVolume());
+        assertEquals("1.5", btc.getTicker().getPrice());
+        assertEquals("1.6", btc.getTicker().getAsk());
+        assertEquals("1.4", btc.getTicker().getBid());
+
+        assertEquals("9.0", markets.get("ethngn").getTicker().getPrice());
+        assertNull(markets.get("ethngn").getTicker().getLow());
+    }
+
+    @Test
+    void discardsDataWhenStatusIsNotSuccessEvenIfItComesLast() throws IOException {
+        Map<String, MarketData> markets = parse("""
+                {"data":{"btcngn":{"at":1,"ticker":{"last":"1.0"}}},"status":"error"}
+                """);
+
+        assertTrue(markets.isEmpty());
+    }
+
+    private Map<String, MarketData> parse(String json) throws IOException {
+        return parser.readMarkets(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
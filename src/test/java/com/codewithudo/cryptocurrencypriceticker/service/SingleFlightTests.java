@@ -0,0 +1,104 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTests {
+
+    private static final int CALLERS = 8;
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final CountDownLatch loading = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneCall() throws Exception {
+        List<Future<String>> results = callConcurrently(() -> "tickers");
+
+        release.countDown();
+        for (Future<String> result : results) {
+            assertEquals("tickers", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void everyWaiterGetsTheLoadersException() throws Exception {
+        ResourceAccessException failure = new ResourceAccessException("connection refused");
+        List<Future<String>> results = callConcurrently(() -> {
+            throw failure;
+        });
+
+        release.countDown();
+        for (Future<String> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void theKeyIsReleasedOnceTheCallCompletes() {
+        assertThrows(ResourceAccessException.class, () -> singleFlight.execute("btcngn", () -> {
+            throw new ResourceAccessException("connection refused");
+        }));
+        assertEquals("first", singleFlight.execute("btcngn", () -> "first"));
+        // Nothing is cached: the next call for the key runs its own loader
+        assertEquals("second", singleFlight.execute("btcngn", () -> "second"));
+        assertEquals("other", singleFlight.execute("ethngn", () -> "other"));
+    }
+
+    // One leader blocks in its loader until released; the rest join while it's still running
+    private List<Future<String>> callConcurrently(Supplier<String> result) throws Exception {
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> singleFlight.execute("tickers", () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            awaitQuietly(release);
+            return result.get();
+        })));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("tickers", () -> {
+                loads.incrementAndGet();
+                return result.get();
+            })));
+        }
+        // Give the followers time to reach the in-flight call before the leader finishes
+        Thread.sleep(100);
+        return results;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.dto.NumericTicker;
+import com.codewithudo.cryptocurrencypriceticker.dto.Tick;
+import com.codewithudo.cryptocurrencypriceticker.dto.Ticker;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TickHistoryTests {
+
+    @Test
+    void keepsOnlyTheLatestTicksOnceFull() {
+        TickHistory history = new TickHistory(3);
+        for (int i = 1; i <= 5; i++) {
+            history.record(i * 1000L, ticker(i + ".5"));
+        }
+
+        List<Tick> ticks = history.between(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(List.of(3L, 4L, 5L), ticks.stream().map(Tick::getAt).toList());
+        assertEquals(List.of("3.5", "4.5", "5.5"), ticks.stream().map(Tick::getPrice).toList());
+    }
+
+    @Test
+    void selectsTicksWithinTheRange() {
+        TickHistory history = new TickHistory(10);
+        for (int i = 1; i <= 6; i++) {
+            history.record(i * 1000L, ticker(i + ".0"));
+        }
+
+        assertEquals(List.of(2L, 3L, 4L), history.between(2000, 4000).stream().map(Tick::getAt).toList());
+        assertEquals(List.of(), history.between(7000, 9000));
+    }
+
+    @Test
+    void dropsOutOfOrderAndRepeatedTicks() {
+        TickHistory history = new TickHistory(10);
+        history.record(2000, ticker("1.0"));
+
+        assertFalse(history.record(1000, ticker("0.5")));
+        assertFalse(history.record(2000, ticker("1.0")));
+        assertEquals(1, history.size());
+    }
+
+    private static NumericTicker ticker(String price) {
+        return NumericTicker.of(new Ticker("1.0", "9.0", "2.0", price, "1.1", "0.9"));
+    }
+}
@@ -0,0 +1,149 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import com.codewithudo.cryptocurrencypriceticker.config.QuidaxProperties;
+import com.codewithudo.cryptocurrencypriceticker.dto.MarketData;
+import com.codewithudo.cryptocurrencypriceticker.dto.Ticker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickerSnapshotServiceTests {
+
+    private final QuidaxProperties properties = new QuidaxProperties();
+    private final FakeExchange quidax = new FakeExchange();
+    private final ExchangeRegistry registry = new ExchangeRegistry("quidax", List.of(quidax),
+            properties.getCache()::hardTtlFor);
+    private final TickerSnapshotService service = new TickerSnapshotService(registry, properties, Runnable::run,
+            new TickerRenderer(new ObjectMapper()), event -> { },
+            new TickHistoryService(properties, new CandleService(properties)));
+
+    @AfterEach
+    void shutdown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void aQuietMarketDoesNotAgeTheWholeSnapshot() {
+        long hourAgo = System.currentTimeMillis() / 1000 - 3600;
+        quidax.markets.put("btcngn", market("100", 0));
+        quidax.markets.put("dustngn", market("1", hourAgo));
+        service.refresh();
+
+        assertNotNull(service.getSnapshotIfFresh());
+        CachedValue<Map<String, Ticker>> tickers = service.getTickers();
+        assertFalse(tickers.isStale());
+        assertEquals(1, quidax.polls.get());
+
+        // The market's own Age still says how old its ticker is
+        CachedValue<Ticker> dust = service.getTicker("dustngn");
+        assertFalse(dust.isStale());
+        assertEquals(3600, dust.getAgeMillis() / 1000, 1);
+        assertEquals(1, quidax.polls.get());
+    }
+
+    @Test
+    void sinceReturnsChangesAndRemovalsOnlyForOurOwnVersions() {
+        quidax.markets.put("btcngn", market("100", 0));
+        quidax.markets.put("ethngn", market("10", 0));
+        service.refresh();
+        String first = service.getTickers().getVersion();
+
+        quidax.markets.put("btcngn", market("101", 0));
+        quidax.markets.remove("ethngn");
+        service.refresh();
+
+        CachedValue<Map<String, Ticker>> delta = service.getTickers(null, first);
+        assertEquals(List.of("btcngn", "ethngn"), List.copyOf(delta.getValue().keySet()));
+        assertNull(delta.getValue().get("ethngn"));
+        assertTrue(new String(delta.getJson(), StandardCharsets.UTF_8).endsWith("\"ethngn\":null}"));
+        assertNull(service.getTickers(List.of("ethngn"), first).getValue().get("ethngn"));
+        assertTrue(service.getTickers(List.of("ethngn"), first).getValue().containsKey("ethngn"));
+
+        // A bare version, or one from another instance or before a restart, gets the full map
+        assertEquals(List.of("btcngn"), List.copyOf(service.getTickers(null, "1").getValue().keySet()));
+        assertEquals(List.of("btcngn"), List.copyOf(service.getTickers(null, "abc-1").getValue().keySet()));
+    }
+
+    @Test
+    void versionTagsChangeWithEveryRestart() {
+        quidax.markets.put("btcngn", market("100", 0));
+        service.refresh();
+        TickerSnapshotService restarted = new TickerSnapshotService(registry, properties, Runnable::run,
+                new TickerRenderer(new ObjectMapper()), event -> { },
+                new TickHistoryService(properties, new CandleService(properties)));
+        restarted.refresh();
+
+        CachedValue<Map<String, Ticker>> before = service.getTickers();
+        CachedValue<Map<String, Ticker>> after = restarted.getTickers();
+        // Same version number and the same tickers, but a client's old tag mustn't match the new process
+        assertEquals(1, restarted.getSnapshot().getVersion());
+        assertNotEquals(before.getEtag(), after.getEtag());
+        assertNotEquals(before.getVersion(), after.getVersion());
+        assertTrue(after.getEtag().equals("W/\"" + after.getVersion() + "\""), after.getEtag());
+    }
+
+    @Test
+    void remembersMarketsTheExchangeDoesNotHave() {
+        quidax.markets.put("btcngn", market("100", 0));
+        service.refresh();
+
+        assertTrue(service.getTickers(List.of("btcngn", "nopengn"), null).getValue().containsKey("btcngn"));
+        assertNull(service.getTicker("nopengn"));
+        assertEquals(List.of(), service.getMissingMarkets(List.of("nopengn")));
+        assertEquals(1, quidax.lookups.get());
+    }
+
+    @Test
+    void cachingAMarketLeavesItsDataAlone() {
+        MarketData marketData = market("100", 0);
+        service.cacheMarket("xrpngn", marketData);
+
+        assertEquals(0, marketData.getAt());
+        assertNotNull(service.getTickerIfFresh("xrpngn"));
+    }
+
+    private static MarketData market(String price, long at) {
+        Ticker ticker = new Ticker();
+        ticker.setPrice(price);
+        MarketData marketData = new MarketData();
+        marketData.setTicker(ticker);
+        marketData.setAt(at);
+        return marketData;
+    }
+
+    private static class FakeExchange implements ExchangeAdapter {
+        private final Map<String, MarketData> markets = new LinkedHashMap<>();
+        private final AtomicInteger polls = new AtomicInteger();
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public String getName() {
+            return "quidax";
+        }
+
+        @Override
+        public Map<String, MarketData> getMarkets() {
+            polls.incrementAndGet();
+            return new LinkedHashMap<>(markets);
+        }
+
+        @Override
+        public MarketData getMarket(String market) {
+            lookups.incrementAndGet();
+            return markets.get(market);
+        }
+    }
+}
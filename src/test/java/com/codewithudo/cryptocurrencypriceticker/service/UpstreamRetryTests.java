@@ -0,0 +1,97 @@
+package com.codewithudo.cryptocurrencypriceticker.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamRetryTests {
+
+    private final UpstreamRetry retry = new UpstreamRetry(3, Duration.ofMillis(1), Duration.ofMillis(10),
+            Duration.ofSeconds(5), true, 0.95, Duration.ofMillis(20));
+    private final UpstreamRetry.Endpoint endpoint = retry.endpoint("test");
+
+    @AfterEach
+    void shutdown() {
+        retry.shutdown();
+    }
+
+    @Test
+    void retriesServerErrorsUntilAnAttemptSucceeds() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retry.execute(endpoint, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "Bad Gateway", null, null, null);
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(HttpClientErrorException.class, () -> retry.execute(endpoint, () -> {
+            attempts.incrementAndGet();
+            throw HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null);
+        }));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void hedgesAnAttemptSlowerThanTheObservedPercentile() {
+        for (int i = 0; i < 50; i++) {
+            retry.execute(endpoint, () -> "warm-up");
+        }
+        AtomicInteger attempts = new AtomicInteger();
+
+        long start = System.nanoTime();
+        String result = retry.execute(endpoint, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                sleep(Duration.ofSeconds(3));
+                return "slow";
+            }
+            return "hedge";
+        });
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertEquals("hedge", result);
+        assertEquals(2, attempts.get());
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(1)) < 0, "took " + elapsed);
+    }
+
+    @Test
+    void givesUpAtTheDeadline() {
+        UpstreamRetry strict = new UpstreamRetry(3, Duration.ofMillis(1), Duration.ofMillis(10),
+                Duration.ofMillis(200), false, 0.95, Duration.ZERO);
+        try {
+            assertThrows(ResourceAccessException.class, () -> strict.execute(strict.endpoint("test"), () -> {
+                sleep(Duration.ofSeconds(3));
+                return "late";
+            }));
+        } finally {
+            strict.shutdown();
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}